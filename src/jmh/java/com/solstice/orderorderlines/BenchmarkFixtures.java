@@ -0,0 +1,82 @@
+package com.solstice.orderorderlines;
+
+import com.solstice.orderorderlines.model.Address;
+import com.solstice.orderorderlines.model.Order;
+import com.solstice.orderorderlines.model.OrderDetail;
+import com.solstice.orderorderlines.model.OrderLineItem;
+import com.solstice.orderorderlines.model.OrderLineSummary;
+import com.solstice.orderorderlines.model.Product;
+import com.solstice.orderorderlines.model.Shipment;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic orders and downstream responses shared by the benchmarks.
+ */
+public final class BenchmarkFixtures {
+
+  public static final int PRODUCT_COUNT = 20;
+  public static final int SHIPMENT_COUNT = 4;
+  public static final LocalDateTime ORDER_DATE = LocalDateTime.of(2018, 9, 12, 14, 0);
+
+  private BenchmarkFixtures() {
+  }
+
+  public static List<OrderLineItem> orderLineItems(int count) {
+    List<OrderLineItem> orderLineItems = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      orderLineItems.add(new OrderLineItem(
+          i % PRODUCT_COUNT + 1,
+          i % 5 + 1,
+          199 + i % 1000,
+          i % SHIPMENT_COUNT + 1));
+    }
+    return orderLineItems;
+  }
+
+  public static Order order(long orderNumber, int lineCount) {
+    Order order = new Order(
+        1,
+        ORDER_DATE.plusMinutes(orderNumber),
+        orderNumber % 3 + 1,
+        orderLineItems(lineCount));
+    order.setOrderNumber(orderNumber);
+    return order;
+  }
+
+  public static List<Order> orders(int count, int linesPerOrder) {
+    List<Order> orders = new ArrayList<>(count);
+    for (int i = 1; i <= count; i++) {
+      orders.add(order(i, linesPerOrder));
+    }
+    return orders;
+  }
+
+  public static Product product(long id) {
+    return new Product(id, "Product " + id, 199 + id);
+  }
+
+  public static Address address() {
+    return new Address("123 Main St", "4B", "Chicago", "IL", "60601", "US");
+  }
+
+  public static Shipment shipment(long id) {
+    return new Shipment(id, 1, 1, ORDER_DATE.plusDays(1), ORDER_DATE.plusDays(3));
+  }
+
+  public static OrderDetail orderDetail(Order order) {
+    List<OrderLineSummary> orderLineSummaries = new ArrayList<>();
+    order.getOrderLineItems().forEach(orderLineItem -> orderLineSummaries.add(
+        new OrderLineSummary("Product " + orderLineItem.getProductId(),
+            orderLineItem.getQuantity())));
+    List<Shipment> shipments = new ArrayList<>();
+    for (long id = 1; id <= SHIPMENT_COUNT; id++) {
+      Shipment shipment = shipment(id);
+      shipment.setOrderLineItems(orderLineSummaries);
+      shipments.add(shipment);
+    }
+    return new OrderDetail(order.getOrderNumber(), address(), order.getTotalPrice(),
+        orderLineSummaries, shipments);
+  }
+}
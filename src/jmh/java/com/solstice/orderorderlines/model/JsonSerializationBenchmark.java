@@ -0,0 +1,56 @@
+package com.solstice.orderorderlines.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.solstice.orderorderlines.BenchmarkFixtures;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Uses an ObjectMapper built the way Spring MVC builds its own, so the LocalDateTime fields go
+ * through the same serializers as in production.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonSerializationBenchmark {
+
+  @Param({"1", "50"})
+  private int lineCount;
+
+  private ObjectMapper objectMapper;
+  private Order order;
+  private OrderDetail orderDetail;
+  private byte[] orderJson;
+
+  @Setup
+  public void setup() throws IOException {
+    objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    order = BenchmarkFixtures.order(1, lineCount);
+    orderDetail = BenchmarkFixtures.orderDetail(order);
+    orderJson = objectMapper.writeValueAsBytes(order);
+  }
+
+  @Benchmark
+  public byte[] serializeOrder() throws IOException {
+    return objectMapper.writeValueAsBytes(order);
+  }
+
+  @Benchmark
+  public byte[] serializeOrderDetail() throws IOException {
+    return objectMapper.writeValueAsBytes(orderDetail);
+  }
+
+  @Benchmark
+  public Order deserializeOrder() throws IOException {
+    return objectMapper.readValue(orderJson, Order.class);
+  }
+}
@@ -0,0 +1,34 @@
+package com.solstice.orderorderlines.model;
+
+import com.solstice.orderorderlines.BenchmarkFixtures;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OrderTotalBenchmark {
+
+  @Param({"10", "1000", "100000"})
+  private int lineCount;
+
+  private Order order;
+
+  @Setup
+  public void setup() {
+    order = BenchmarkFixtures.order(1, lineCount);
+  }
+
+  @Benchmark
+  public long setTotalPrice() {
+    order.setTotalPrice();
+    return order.getTotalPrice();
+  }
+}
@@ -0,0 +1,129 @@
+package com.solstice.orderorderlines.service;
+
+import com.solstice.orderorderlines.BenchmarkFixtures;
+import com.solstice.orderorderlines.config.OrderServiceProperties;
+import com.solstice.orderorderlines.dao.OrderRepository;
+import com.solstice.orderorderlines.external.AccountAddressClient;
+import com.solstice.orderorderlines.external.ProductClient;
+import com.solstice.orderorderlines.external.ShipmentClient;
+import com.solstice.orderorderlines.model.Address;
+import com.solstice.orderorderlines.model.Order;
+import com.solstice.orderorderlines.model.OrderDetail;
+import com.solstice.orderorderlines.model.Product;
+import com.solstice.orderorderlines.model.Shipment;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures getOrderDetails with clients that answer immediately, i.e. the cost of assembling the
+ * details rather than of waiting on the downstream services.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OrderDetailsBenchmark {
+
+  @Param({"1", "20", "200"})
+  private int orderCount;
+
+  @Param({"5"})
+  private int linesPerOrder;
+
+  @Param({"false", "true"})
+  private boolean parallel;
+
+  private ExecutorService executor;
+  private OrderOrderLineService orderOrderLineService;
+
+  @Setup
+  public void setup() {
+    executor = Executors.newFixedThreadPool(8);
+    OrderServiceProperties orderServiceProperties = new OrderServiceProperties();
+    orderServiceProperties.getDetails().setParallel(parallel);
+    orderOrderLineService = new OrderOrderLineService(
+        null,
+        orderRepository(BenchmarkFixtures.orders(orderCount, linesPerOrder)),
+        new StubAccountAddressClient(),
+        new StubProductClient(),
+        new StubShipmentClient(),
+        executor,
+        orderServiceProperties,
+        null,
+        null,
+        null);
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Benchmark
+  public List<OrderDetail> getOrderDetails() {
+    return orderOrderLineService.getOrderDetails(1);
+  }
+
+  private static OrderRepository orderRepository(List<Order> orders) {
+    return (OrderRepository) Proxy.newProxyInstance(
+        OrderRepository.class.getClassLoader(),
+        new Class<?>[]{OrderRepository.class},
+        (proxy, method, args) -> {
+          if (method.getName().equals("findAllWithOrderLineItemsByAccountIdOrderByOrderDate")) {
+            return orders;
+          }
+          throw new UnsupportedOperationException(method.getName());
+        });
+  }
+
+  private static class StubAccountAddressClient implements AccountAddressClient {
+
+    @Override
+    public Address getAddressByAccountIdAndAddressId(long accountId, long addressId) {
+      return BenchmarkFixtures.address();
+    }
+  }
+
+  private static class StubProductClient implements ProductClient {
+
+    @Override
+    public Product getProductById(long id) {
+      return BenchmarkFixtures.product(id);
+    }
+
+    @Override
+    public List<Product> getProductsByIds(Collection<Long> ids) {
+      List<Product> products = new ArrayList<>(ids.size());
+      ids.forEach(id -> products.add(BenchmarkFixtures.product(id)));
+      return products;
+    }
+  }
+
+  private static class StubShipmentClient implements ShipmentClient {
+
+    @Override
+    public Shipment getShipmentById(long id) {
+      return BenchmarkFixtures.shipment(id);
+    }
+
+    @Override
+    public List<Shipment> getShipmentsByIds(Collection<Long> ids) {
+      List<Shipment> shipments = new ArrayList<>(ids.size());
+      ids.forEach(id -> shipments.add(BenchmarkFixtures.shipment(id)));
+      return shipments;
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package com.solstice.orderorderlines.service;
+
+import com.solstice.orderorderlines.BenchmarkFixtures;
+import com.solstice.orderorderlines.model.OrderLineItem;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ShipmentGroupingBenchmark {
+
+  @Param({"10", "1000", "100000"})
+  private int lineCount;
+
+  private List<OrderLineItem> orderLineItems;
+
+  @Setup
+  public void setup() {
+    orderLineItems = BenchmarkFixtures.orderLineItems(lineCount);
+  }
+
+  @Benchmark
+  public Map<Long, List<OrderLineItem>> groupByShipmentId() {
+    return OrderOrderLineService.groupByShipmentId(orderLineItems);
+  }
+}
@@ -0,0 +1,96 @@
+package com.solstice.orderorderlines.loadtest;
+
+import com.solstice.orderorderlines.dao.OrderRepository;
+import com.solstice.orderorderlines.service.OrderDetailReadModel;
+import com.solstice.orderorderlines.model.Order;
+import com.solstice.orderorderlines.model.OrderLineItem;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generated orders written straight through the repository, with their order detail snapshots
+ * built up front, plus the ids the driver needs to address them.
+ */
+final class Dataset {
+
+  private static final int CHUNK_SIZE = 500;
+
+  final long[] orderNumbers;
+  final long[][] orderLineIds;
+  private final LoadTestSettings settings;
+
+  private Dataset(LoadTestSettings settings, long[] orderNumbers, long[][] orderLineIds) {
+    this.settings = settings;
+    this.orderNumbers = orderNumbers;
+    this.orderLineIds = orderLineIds;
+  }
+
+  /**
+   * Saving through the repository publishes no change events, so the snapshots are built here;
+   * otherwise the first reads of every account would measure rebuilds instead of the read path.
+   */
+  static Dataset seed(OrderRepository orderRepository, OrderDetailReadModel orderDetailReadModel,
+      LoadTestSettings settings) {
+    int orderCount = settings.accounts * settings.ordersPerAccount;
+    long[] orderNumbers = new long[orderCount];
+    long[][] orderLineIds = new long[orderCount][];
+    List<Order> chunk = new ArrayList<>(CHUNK_SIZE);
+    int saved = 0;
+    for (int i = 0; i < orderCount; i++) {
+      chunk.add(order(settings, accountId(settings, i), i));
+      if (chunk.size() == CHUNK_SIZE || i == orderCount - 1) {
+        int first = saved;
+        for (Order order : orderRepository.saveAll(chunk)) {
+          orderNumbers[saved] = order.getOrderNumber();
+          orderLineIds[saved] = order.getOrderLineItems().stream()
+              .mapToLong(OrderLineItem::getId).toArray();
+          saved++;
+        }
+        orderDetailReadModel.refresh(Arrays.stream(orderNumbers, first, saved)
+            .boxed().collect(Collectors.toList()));
+        chunk.clear();
+      }
+    }
+    return new Dataset(settings, orderNumbers, orderLineIds);
+  }
+
+  static Order order(LoadTestSettings settings, long accountId, int sequence) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    List<OrderLineItem> orderLineItems = new ArrayList<>(settings.linesPerOrder);
+    for (int i = 0; i < settings.linesPerOrder; i++) {
+      orderLineItems.add(new OrderLineItem(
+          random.nextInt(settings.products) + 1,
+          random.nextInt(5) + 1,
+          random.nextInt(10_000) + 1,
+          random.nextInt(settings.shipments) + 1));
+    }
+    return new Order(
+        accountId,
+        LocalDateTime.of(2018, 1, 1, 0, 0).plusMinutes(sequence),
+        accountId % 3 + 1,
+        orderLineItems);
+  }
+
+  /**
+   * The account the order at the given index was seeded for.
+   */
+  long accountId(int orderIndex) {
+    return accountId(settings, orderIndex);
+  }
+
+  private static long accountId(LoadTestSettings settings, int orderIndex) {
+    return orderIndex % settings.accounts + 1;
+  }
+
+  long randomAccountId() {
+    return ThreadLocalRandom.current().nextInt(settings.accounts) + 1;
+  }
+
+  int randomOrderIndex() {
+    return ThreadLocalRandom.current().nextInt(orderNumbers.length);
+  }
+}
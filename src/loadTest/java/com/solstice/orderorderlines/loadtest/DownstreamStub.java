@@ -0,0 +1,108 @@
+package com.solstice.orderorderlines.loadtest;
+
+import com.solstice.orderorderlines.loadtest.LoadTestSettings.StubSettings;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Local stand-in for one downstream service. Routes map a request URI to a JSON body, or to null
+ * for a 404.
+ */
+final class DownstreamStub {
+
+  private final String serviceName;
+  private final StubSettings settings;
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final List<Route> routes = new ArrayList<>();
+
+  DownstreamStub(String serviceName, StubSettings settings) throws IOException {
+    this.serviceName = serviceName;
+    this.settings = settings;
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.setExecutor(executor);
+    server.createContext("/", this::handle);
+  }
+
+  DownstreamStub route(String pathPrefix, Function<URI, String> handler) {
+    routes.add(new Route(pathPrefix, handler));
+    return this;
+  }
+
+  void start() {
+    server.start();
+  }
+
+  void stop() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  String address() {
+    return "localhost:" + server.getAddress().getPort();
+  }
+
+  String serviceName() {
+    return serviceName;
+  }
+
+  StubSettings settings() {
+    return settings;
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      long delay = settings.latencyMs
+          + Math.round(-settings.tailMs * Math.log(1 - random.nextDouble()));
+      Thread.sleep(delay);
+      if (random.nextDouble() < settings.errorRate) {
+        respond(exchange, 500, "{\"error\":\"injected\"}");
+        return;
+      }
+      URI uri = exchange.getRequestURI();
+      for (Route route : routes) {
+        if (uri.getPath().startsWith(route.pathPrefix)) {
+          String body = route.handler.apply(uri);
+          respond(exchange, body == null ? 404 : 200, body == null ? "{}" : body);
+          return;
+        }
+      }
+      respond(exchange, 404, "{}");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      exchange.close();
+    }
+  }
+
+  private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  private static final class Route {
+    final String pathPrefix;
+    final Function<URI, String> handler;
+
+    Route(String pathPrefix, Function<URI, String> handler) {
+      this.pathPrefix = pathPrefix;
+      this.handler = handler;
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package com.solstice.orderorderlines.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.function.LongFunction;
+
+/**
+ * Stubs for account-address-service, product-service and shipment-service that answer every id
+ * with generated data in the shape the Feign clients expect.
+ */
+final class DownstreamStubs {
+
+  private DownstreamStubs() {
+  }
+
+  static List<DownstreamStub> start(LoadTestSettings settings) throws IOException {
+    List<DownstreamStub> stubs = Arrays.asList(
+        new DownstreamStub("account-address-service", settings.stub("account-address-service"))
+            .route("/accounts/", uri -> address(lastSegment(uri))),
+        new DownstreamStub("product-service", settings.stub("product-service"))
+            .route("/products/", uri -> product(lastSegment(uri)))
+            .route("/products", uri -> list(ids(uri), DownstreamStubs::product)),
+        new DownstreamStub("shipment-service", settings.stub("shipment-service"))
+            .route("/shipments/", uri -> shipment(lastSegment(uri)))
+            .route("/shipments", uri -> list(ids(uri), DownstreamStubs::shipment)));
+    stubs.forEach(DownstreamStub::start);
+    return stubs;
+  }
+
+  private static String address(long id) {
+    return "{\"id\":" + id + ",\"street\":\"" + id + " Main St\",\"apartment\":\"\","
+        + "\"city\":\"Chicago\",\"state\":\"IL\",\"zip\":\"60601\",\"country\":\"US\"}";
+  }
+
+  private static String product(long id) {
+    return "{\"id\":" + id + ",\"name\":\"Product " + id + "\",\"description\":\"\","
+        + "\"image\":\"\",\"price\":" + (1 + id % 100) + "." + (10 + id % 90) + "}";
+  }
+
+  private static String shipment(long id) {
+    return "{\"id\":" + id + ",\"accountId\":1,\"shippingAddressId\":1,"
+        + "\"shippedDate\":\"2018-09-08T12:30:00\",\"deliveryDate\":\"2018-09-10T12:30:00\"}";
+  }
+
+  private static String list(List<Long> ids, LongFunction<String> element) {
+    StringJoiner json = new StringJoiner(",", "[", "]");
+    ids.forEach(id -> json.add(element.apply(id)));
+    return json.toString();
+  }
+
+  private static long lastSegment(URI uri) {
+    String path = uri.getPath();
+    return Long.parseLong(path.substring(path.lastIndexOf('/') + 1));
+  }
+
+  /**
+   * Feign sends a collection parameter either as repeated {@code ids=1&ids=2} or as {@code
+   * ids=1,2}; both are accepted.
+   */
+  private static List<Long> ids(URI uri) {
+    List<Long> ids = new ArrayList<>();
+    if (uri.getQuery() == null) {
+      return ids;
+    }
+    for (String parameter : uri.getQuery().split("&")) {
+      if (parameter.startsWith("ids=")) {
+        for (String id : parameter.substring(4).split(",")) {
+          if (!id.isEmpty()) {
+            ids.add(Long.parseLong(id));
+          }
+        }
+      }
+    }
+    return ids;
+  }
+}
@@ -0,0 +1,309 @@
+package com.solstice.orderorderlines.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.solstice.orderorderlines.model.Order;
+import com.solstice.orderorderlines.model.OrderLineItem;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Closed-loop driver: each worker thread picks an operation from the weighted mix, waits for the
+ * response and immediately picks the next one.
+ */
+final class LoadDriver {
+
+  private static final int CREATED_CAPACITY = 10_000;
+
+  private final String baseUrl;
+  private final LoadTestSettings settings;
+  private final Dataset dataset;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final Map<String, OperationStats> stats = new LinkedHashMap<>();
+  private final List<Operation> reads = new ArrayList<>();
+  private final List<Operation> writes = new ArrayList<>();
+  private final Queue<Long> createdOrderNumbers = new ArrayBlockingQueue<>(CREATED_CAPACITY);
+  private final Queue<long[]> createdLines = new ArrayBlockingQueue<>(CREATED_CAPACITY);
+
+  LoadDriver(String baseUrl, LoadTestSettings settings, Dataset dataset) {
+    this.baseUrl = baseUrl;
+    this.settings = settings;
+    this.dataset = dataset;
+
+    read("GET /orders/{accountId}", 40,
+        () -> get("/orders/" + dataset.randomAccountId()));
+    read("GET /orders?accountId", 20,
+        () -> get("/orders?accountId=" + dataset.randomAccountId() + "&size=20"));
+    read("GET /orders", 10,
+        () -> get("/orders?size=50&cursor=" + cursor(randomOrderNumber())));
+    read("GET /orders/{id}/lines", 30,
+        () -> get("/orders/" + randomOrderNumber() + "/lines"));
+
+    write("POST /orders", 30, () -> {
+      JsonNode order = sendForJson("POST", "/orders", newOrder());
+      if (order != null) {
+        created(order);
+      }
+      return order != null;
+    });
+    write("PUT /orders/{id}", 20, () -> {
+      int index = dataset.randomOrderIndex();
+      return send("PUT", "/orders/" + dataset.orderNumbers[index], replacementOrder(index));
+    });
+    write("POST /orders/{id}/lines", 20,
+        () -> send("POST", "/orders/" + randomOrderNumber() + "/lines", newLine()));
+    write("PUT /orders/{id}/lines/{lineId}", 15, () -> {
+      int index = dataset.randomOrderIndex();
+      return send("PUT", "/orders/" + dataset.orderNumbers[index] + "/lines/"
+          + randomLineId(index), newLine());
+    });
+    // Deletes remove what the run itself created, so the seeded orders and lines the other
+    // operations address stay in place.
+    write("DELETE /orders/{id}/lines/{lineId}", 10, createdLines::isEmpty, () -> {
+      long[] line = createdLines.poll();
+      return line != null
+          && send("DELETE", "/orders/" + line[0] + "/lines/" + line[1], null);
+    });
+    write("DELETE /orders/{id}", 10, createdOrderNumbers::isEmpty, () -> {
+      Long orderNumber = createdOrderNumbers.poll();
+      return orderNumber != null && send("DELETE", "/orders/" + orderNumber, null);
+    });
+    write("POST /orders/batch", 10, () -> {
+      List<Object> orders = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        orders.add(newOrder());
+      }
+      return send("POST", "/orders/batch", orders);
+    });
+  }
+
+  Map<String, OperationStats> stats() {
+    return Collections.unmodifiableMap(stats);
+  }
+
+  void run(Duration duration) throws InterruptedException {
+    long deadline = System.nanoTime() + duration.toNanos();
+    CountDownLatch done = new CountDownLatch(settings.threads);
+    for (int i = 0; i < settings.threads; i++) {
+      Thread worker = new Thread(() -> {
+        try {
+          while (System.nanoTime() < deadline) {
+            Operation operation = next();
+            if (!operation.isIdle()) {
+              operation.execute();
+            }
+          }
+        } finally {
+          done.countDown();
+        }
+      }, "load-driver-" + i);
+      worker.setDaemon(true);
+      worker.start();
+    }
+    done.await();
+  }
+
+  /**
+   * Reads the whole NDJSON export once and records it as its own operation; it is too heavy to be
+   * part of the mix.
+   */
+  void runExport() {
+    OperationStats export = stats.computeIfAbsent("GET /orders/export", OperationStats::new);
+    long start = System.nanoTime();
+    boolean success = get("/orders/export");
+    export.record(System.nanoTime() - start, success);
+  }
+
+  void reset() {
+    stats.values().forEach(OperationStats::reset);
+  }
+
+  private Operation next() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    List<Operation> operations = random.nextInt(100) < settings.writePercent ? writes : reads;
+    int totalWeight = operations.stream().mapToInt(operation -> operation.weight).sum();
+    int pick = random.nextInt(totalWeight);
+    for (Operation operation : operations) {
+      pick -= operation.weight;
+      if (pick < 0) {
+        return operation;
+      }
+    }
+    return operations.get(operations.size() - 1);
+  }
+
+  private void read(String name, int weight, Request request) {
+    reads.add(new Operation(stats.computeIfAbsent(name, OperationStats::new), weight,
+        () -> false, request));
+  }
+
+  private void write(String name, int weight, Request request) {
+    write(name, weight, () -> false, request);
+  }
+
+  /**
+   * Registers a write that is skipped while idle, such as a delete with nothing created to delete.
+   */
+  private void write(String name, int weight, BooleanSupplier idle, Request request) {
+    writes.add(new Operation(stats.computeIfAbsent(name, OperationStats::new), weight, idle,
+        request));
+  }
+
+  /**
+   * Hands an order created by the run to one of the deletes: either the whole order, or each of
+   * its lines. Never both, so no delete finds its target already gone.
+   */
+  private void created(JsonNode order) {
+    long orderNumber = order.path("orderNumber").asLong();
+    if (ThreadLocalRandom.current().nextBoolean()) {
+      createdOrderNumbers.offer(orderNumber);
+      return;
+    }
+    for (JsonNode line : order.path("orderLineItems")) {
+      createdLines.offer(new long[] {orderNumber, line.path("id").asLong()});
+    }
+  }
+
+  private long randomOrderNumber() {
+    return dataset.orderNumbers[dataset.randomOrderIndex()];
+  }
+
+  private long randomLineId(int orderIndex) {
+    long[] lineIds = dataset.orderLineIds[orderIndex];
+    return lineIds[ThreadLocalRandom.current().nextInt(lineIds.length)];
+  }
+
+  private static String cursor(long orderNumber) {
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(Long.toString(orderNumber).getBytes(StandardCharsets.UTF_8));
+  }
+
+  private Object newOrder() {
+    return Dataset.order(settings, dataset.randomAccountId(), 0);
+  }
+
+  /**
+   * A new version of a seeded order that keeps its account and line ids. Lines left out of the
+   * body are orphans and get deleted, which would make the line updates aimed at them fail.
+   */
+  private Object replacementOrder(int orderIndex) {
+    Order order = Dataset.order(settings, dataset.accountId(orderIndex), 0);
+    long[] lineIds = dataset.orderLineIds[orderIndex];
+    List<OrderLineItem> orderLineItems = order.getOrderLineItems();
+    for (int i = 0; i < lineIds.length && i < orderLineItems.size(); i++) {
+      orderLineItems.get(i).setId(lineIds[i]);
+    }
+    return order;
+  }
+
+  private Object newLine() {
+    return Dataset.order(settings, 1, 0).getOrderLineItems().get(0);
+  }
+
+  private boolean get(String path) {
+    return send("GET", path, null);
+  }
+
+  private boolean send(String method, String path, Object body) {
+    try {
+      HttpURLConnection connection = open(method, path, body);
+      int status = connection.getResponseCode();
+      drain(status < 400 ? connection.getInputStream() : connection.getErrorStream());
+      return status < 400;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Sends the request and reads the response body, or returns null if the request failed.
+   */
+  private JsonNode sendForJson(String method, String path, Object body) {
+    try {
+      HttpURLConnection connection = open(method, path, body);
+      int status = connection.getResponseCode();
+      if (status >= 400) {
+        drain(connection.getErrorStream());
+        return null;
+      }
+      try (InputStream in = connection.getInputStream()) {
+        return objectMapper.readTree(in);
+      }
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  private HttpURLConnection open(String method, String path, Object body) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+    connection.setRequestMethod(method);
+    if (body != null) {
+      connection.setDoOutput(true);
+      connection.setRequestProperty("Content-Type", "application/json");
+      try (OutputStream out = connection.getOutputStream()) {
+        objectMapper.writeValue(out, body);
+      }
+    }
+    return connection;
+  }
+
+  /**
+   * Reading the body to the end lets HttpURLConnection reuse the keep-alive connection.
+   */
+  private static void drain(InputStream in) throws IOException {
+    if (in == null) {
+      return;
+    }
+    try (InputStream body = in) {
+      byte[] buffer = new byte[8192];
+      while (body.read(buffer) != -1) {
+        // discard
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface Request {
+    boolean send();
+  }
+
+  private static final class Operation {
+    final OperationStats stats;
+    final int weight;
+    final BooleanSupplier idle;
+    final Request request;
+
+    Operation(OperationStats stats, int weight, BooleanSupplier idle, Request request) {
+      this.stats = stats;
+      this.weight = weight;
+      this.idle = idle;
+      this.request = request;
+    }
+
+    boolean isIdle() {
+      return idle.getAsBoolean();
+    }
+
+    void execute() {
+      long start = System.nanoTime();
+      boolean success = request.send();
+      stats.record(System.nanoTime() - start, success);
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package com.solstice.orderorderlines.loadtest;
+
+import com.solstice.orderorderlines.OrderOrderLinesServiceApplication;
+import com.solstice.orderorderlines.dao.OrderRepository;
+import com.solstice.orderorderlines.service.OrderDetailReadModel;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Boots the service against an in-memory H2 database and local stand-ins for its downstream
+ * services, seeds a dataset, drives a read/write mix over HTTP and prints per-operation latency
+ * percentiles. Run with {@code ./gradlew loadTest -Dloadtest.threads=64 ...}.
+ */
+public final class LoadTestRunner {
+
+  private LoadTestRunner() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+    List<DownstreamStub> stubs = DownstreamStubs.start(settings);
+
+    // Read by the bootstrap context, before the properties below are applied.
+    System.setProperty("spring.cloud.config.enabled", "false");
+    System.setProperty("eureka.client.enabled", "false");
+
+    Map<String, Object> properties = new HashMap<>();
+    properties.put("server.port", 0);
+    properties.put("spring.datasource.url", "jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1");
+    properties.put("spring.datasource.username", "sa");
+    properties.put("spring.datasource.password", "");
+    properties.put("ribbon.eureka.enabled", false);
+    properties.put("spring.cloud.service-registry.auto-registration.enabled", false);
+    for (DownstreamStub stub : stubs) {
+      properties.put(stub.serviceName() + ".ribbon.listOfServers", stub.address());
+    }
+
+    ConfigurableApplicationContext context =
+        new SpringApplicationBuilder(OrderOrderLinesServiceApplication.class)
+            .properties(properties)
+            .run(args);
+    try {
+      System.out.println("Seeding " + settings.accounts * settings.ordersPerAccount + " orders");
+      Dataset dataset = Dataset.seed(context.getBean(OrderRepository.class),
+          context.getBean(OrderDetailReadModel.class), settings);
+
+      String port = context.getEnvironment().getProperty("local.server.port");
+      LoadDriver driver = new LoadDriver("http://localhost:" + port, settings, dataset);
+
+      System.out.println("Warming up for " + settings.warmup.getSeconds() + "s");
+      driver.run(settings.warmup);
+      driver.reset();
+
+      System.out.println("Running " + settings.threads + " threads for "
+          + settings.duration.getSeconds() + "s");
+      driver.run(settings.duration);
+      driver.runExport();
+
+      report(settings, stubs, driver);
+    } finally {
+      context.close();
+      stubs.forEach(DownstreamStub::stop);
+    }
+  }
+
+  private static void report(
+      LoadTestSettings settings, List<DownstreamStub> stubs, LoadDriver driver) {
+    stubs.forEach(stub -> System.out.println(stub.serviceName() + ": " + stub.settings()));
+    double seconds = settings.duration.getSeconds();
+    System.out.println(OperationStats.header());
+    driver.stats().values().stream()
+        .filter(stats -> stats.count() > 0)
+        .forEach(stats -> System.out.println(stats.format(seconds)));
+  }
+}
@@ -0,0 +1,69 @@
+package com.solstice.orderorderlines.loadtest;
+
+import java.time.Duration;
+
+/**
+ * Harness settings, read from {@code loadtest.*} system properties so they can be passed through
+ * {@code ./gradlew loadTest -Dloadtest.threads=64}.
+ */
+final class LoadTestSettings {
+
+  final int threads = intProperty("loadtest.threads", 32);
+  final Duration warmup = Duration.ofSeconds(intProperty("loadtest.warmup-seconds", 10));
+  final Duration duration = Duration.ofSeconds(intProperty("loadtest.duration-seconds", 60));
+  final int accounts = intProperty("loadtest.accounts", 500);
+  final int ordersPerAccount = intProperty("loadtest.orders-per-account", 20);
+  final int linesPerOrder = intProperty("loadtest.lines-per-order", 5);
+  final int products = intProperty("loadtest.products", 1000);
+  final int shipments = intProperty("loadtest.shipments", 5000);
+  /**
+   * Percentage of operations that write; the remainder are reads.
+   */
+  final int writePercent = intProperty("loadtest.write-percent", 10);
+
+  private LoadTestSettings() {
+  }
+
+  static LoadTestSettings fromSystemProperties() {
+    return new LoadTestSettings();
+  }
+
+  StubSettings stub(String serviceName) {
+    return new StubSettings(
+        intProperty("loadtest." + serviceName + ".latency-ms",
+            intProperty("loadtest.stub.latency-ms", 20)),
+        intProperty("loadtest." + serviceName + ".tail-ms",
+            intProperty("loadtest.stub.tail-ms", 30)),
+        doubleProperty("loadtest." + serviceName + ".error-rate",
+            doubleProperty("loadtest.stub.error-rate", 0.01)));
+  }
+
+  private static int intProperty(String name, int defaultValue) {
+    return Integer.parseInt(System.getProperty(name, Integer.toString(defaultValue)));
+  }
+
+  private static double doubleProperty(String name, double defaultValue) {
+    return Double.parseDouble(System.getProperty(name, Double.toString(defaultValue)));
+  }
+
+  /**
+   * Each stubbed response waits {@code latencyMs} plus an exponentially distributed tail with mean
+   * {@code tailMs}, and fails with a 500 at {@code errorRate}.
+   */
+  static final class StubSettings {
+    final int latencyMs;
+    final int tailMs;
+    final double errorRate;
+
+    StubSettings(int latencyMs, int tailMs, double errorRate) {
+      this.latencyMs = latencyMs;
+      this.tailMs = tailMs;
+      this.errorRate = errorRate;
+    }
+
+    @Override
+    public String toString() {
+      return "latency=" + latencyMs + "ms + exp(" + tailMs + "ms), errors=" + errorRate;
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package com.solstice.orderorderlines.loadtest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latency histogram and error count for one operation of the traffic mix.
+ */
+final class OperationStats {
+
+  private static final long MAX_TRACKED_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+  private final String name;
+  private final Histogram latencies = new ConcurrentHistogram(MAX_TRACKED_MICROS, 3);
+  private final LongAdder errors = new LongAdder();
+
+  OperationStats(String name) {
+    this.name = name;
+  }
+
+  void record(long elapsedNanos, boolean success) {
+    latencies.recordValue(
+        Math.min(TimeUnit.NANOSECONDS.toMicros(elapsedNanos), MAX_TRACKED_MICROS));
+    if (!success) {
+      errors.increment();
+    }
+  }
+
+  void reset() {
+    latencies.reset();
+    errors.reset();
+  }
+
+  long count() {
+    return latencies.getTotalCount();
+  }
+
+  String format(double seconds) {
+    return String.format("%-28s %9d %8d %10.1f %9.2f %9.2f %9.2f %9.2f",
+        name,
+        count(),
+        errors.sum(),
+        count() / seconds,
+        millis(latencies.getValueAtPercentile(50)),
+        millis(latencies.getValueAtPercentile(95)),
+        millis(latencies.getValueAtPercentile(99)),
+        millis(latencies.getMaxValue()));
+  }
+
+  static String header() {
+    return String.format("%-28s %9s %8s %10s %9s %9s %9s %9s",
+        "operation", "count", "errors", "ops/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+  }
+
+  private static double millis(long micros) {
+    return micros / 1000.0;
+  }
+}
@@ -0,0 +1,9 @@
+package com.solstice.orderorderlines.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties({ClientCacheProperties.class, ClientCollapsingProperties.class})
+public class ClientCacheConfig {
+}
@@ -0,0 +1,88 @@
+package com.solstice.orderorderlines.config;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "client-cache")
+public class ClientCacheProperties {
+
+  private final Spec products = new Spec();
+  private final Spec addresses = new Spec();
+  private final LastKnownGood lastKnownGood = new LastKnownGood();
+
+  public Spec getProducts() {
+    return products;
+  }
+
+  public Spec getAddresses() {
+    return addresses;
+  }
+
+  public LastKnownGood getLastKnownGood() {
+    return lastKnownGood;
+  }
+
+  public static class Spec {
+
+    private long maximumSize = 10000;
+    private Duration ttl = Duration.ofMinutes(10);
+    /**
+     * Entries older than this are reloaded in the background on their next read while the
+     * cached value keeps being served. Must be shorter than the ttl to have any effect.
+     */
+    private Duration refreshAfter = Duration.ofMinutes(5);
+
+    public long getMaximumSize() {
+      return maximumSize;
+    }
+
+    public void setMaximumSize(long maximumSize) {
+      this.maximumSize = maximumSize;
+    }
+
+    public Duration getTtl() {
+      return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+      this.ttl = ttl;
+    }
+
+    public Duration getRefreshAfter() {
+      return refreshAfter;
+    }
+
+    public void setRefreshAfter(Duration refreshAfter) {
+      this.refreshAfter = refreshAfter;
+    }
+  }
+
+  /**
+   * Last successful response per product, address and shipment, served by the client fallbacks
+   * while a downstream service is unavailable.
+   */
+  public static class LastKnownGood {
+
+    /**
+     * Entries kept per kind of response.
+     */
+    private long maximumSize = 50000;
+    private Duration ttl = Duration.ofHours(24);
+
+    public long getMaximumSize() {
+      return maximumSize;
+    }
+
+    public void setMaximumSize(long maximumSize) {
+      this.maximumSize = maximumSize;
+    }
+
+    public Duration getTtl() {
+      return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+      this.ttl = ttl;
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package com.solstice.orderorderlines.config;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "client-collapsing")
+public class ClientCollapsingProperties {
+
+  private final Spec products = new Spec();
+
+  public Spec getProducts() {
+    return products;
+  }
+
+  public static class Spec {
+
+    /**
+     * Gather single lookups from concurrent requests into one bulk call instead of sending each
+     * on its own.
+     */
+    private boolean enabled = true;
+    /**
+     * How long the first lookup of a batch waits for others to join it.
+     */
+    private Duration window = Duration.ofMillis(5);
+    /**
+     * A batch reaching this many distinct ids is sent without waiting for the window to end.
+     */
+    private int maxBatchSize = 100;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public Duration getWindow() {
+      return window;
+    }
+
+    public void setWindow(Duration window) {
+      this.window = window;
+    }
+
+    public int getMaxBatchSize() {
+      return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+      this.maxBatchSize = maxBatchSize;
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package com.solstice.orderorderlines.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.solstice.orderorderlines.model.CacheRegions;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import java.time.Duration;
+import java.util.OptionalLong;
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Creates the second-level cache regions in the JCache manager Hibernate uses, before the
+ * EntityManagerFactory starts. Regions Hibernate had to create itself would be unbounded. Each
+ * region reports hits, misses and evictions as cache.* metrics tagged with its name.
+ *
+ * <p>Caffeine keeps the regions in this instance's heap and no other instance hears of its
+ * writes, so this setup assumes a single instance. With more than one, another instance serves an
+ * order from its own copy until that copy expires; the ttl is therefore capped at
+ * read-replicas.read-your-writes-window, the staleness a replica read is already allowed. Switch
+ * the JCache provider to a clustered one, such as Hazelcast or Infinispan, to scale out without
+ * that window.
+ */
+@Configuration
+@EnableConfigurationProperties(EntityCacheProperties.class)
+public class EntityCacheConfig {
+
+  @Bean
+  public static EntityManagerFactoryDependsOnPostProcessor entityCacheDependency() {
+    return new EntityManagerFactoryDependsOnPostProcessor("entityCacheManager");
+  }
+
+  @Bean
+  public CacheManager entityCacheManager(EntityCacheProperties entityCacheProperties,
+      ReadReplicaProperties readReplicaProperties, MeterRegistry meterRegistry) {
+    Duration maxTtl = readReplicaProperties.getReadYourWritesWindow();
+    // The same manager Hibernate's JCacheRegionFactory looks up from its provider setting.
+    CacheManager cacheManager = Caching
+        .getCachingProvider(CaffeineCachingProvider.class.getName())
+        .getCacheManager();
+    createRegion(cacheManager, CacheRegions.ORDERS, entityCacheProperties.getOrders(),
+        maxTtl, meterRegistry);
+    createRegion(cacheManager, CacheRegions.ORDER_LINE_ITEM_IDS,
+        entityCacheProperties.getOrderLineItemIds(), maxTtl, meterRegistry);
+    createRegion(cacheManager, CacheRegions.ORDER_LINE_ITEMS,
+        entityCacheProperties.getOrderLineItems(), maxTtl, meterRegistry);
+    return cacheManager;
+  }
+
+  private static void createRegion(CacheManager cacheManager, String name,
+      EntityCacheProperties.Region region, Duration maxTtl, MeterRegistry meterRegistry) {
+    Cache<Object, Object> cache = cacheManager.getCache(name);
+    if (cache == null) {
+      CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+      configuration.setMaximumSize(OptionalLong.of(region.getMaximumSize()));
+      Duration ttl = region.getTtl().compareTo(maxTtl) > 0 ? maxTtl : region.getTtl();
+      configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+      // Entries are only ever read through Hibernate, so copying them on each access buys nothing.
+      configuration.setStoreByValue(false);
+      configuration.setStatisticsEnabled(true);
+      cache = cacheManager.createCache(name, configuration);
+    }
+    JCacheMetrics.monitor(meterRegistry, cache, Tags.empty());
+  }
+}
@@ -0,0 +1,59 @@
+package com.solstice.orderorderlines.config;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Bounds of the Hibernate second-level cache regions. The cache is local to each instance, so
+ * the ttl is also how long an instance can serve an order another instance has changed. It is
+ * capped at read-replicas.read-your-writes-window.
+ */
+@ConfigurationProperties(prefix = "entity-cache")
+public class EntityCacheProperties {
+
+  private final Region orders = new Region();
+  private final Region orderLineItemIds = new Region();
+  private final Region orderLineItems = new Region(50000);
+
+  public Region getOrders() {
+    return orders;
+  }
+
+  public Region getOrderLineItemIds() {
+    return orderLineItemIds;
+  }
+
+  public Region getOrderLineItems() {
+    return orderLineItems;
+  }
+
+  public static class Region {
+
+    private long maximumSize;
+    private Duration ttl = Duration.ofSeconds(5);
+
+    public Region() {
+      this(10000);
+    }
+
+    Region(long maximumSize) {
+      this.maximumSize = maximumSize;
+    }
+
+    public long getMaximumSize() {
+      return maximumSize;
+    }
+
+    public void setMaximumSize(long maximumSize) {
+      this.maximumSize = maximumSize;
+    }
+
+    public Duration getTtl() {
+      return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+      this.ttl = ttl;
+    }
+  }
+}
@@ -0,0 +1,26 @@
+package com.solstice.orderorderlines.config;
+
+import com.netflix.hystrix.HystrixCommand;
+import com.netflix.hystrix.HystrixCommandGroupKey;
+import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.HystrixThreadPoolKey;
+import feign.hystrix.SetterFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Runs every Feign call to a downstream service under one Hystrix command and thread pool named
+ * after that service, so each dependency gets its own bulkhead, timeout and circuit breaker
+ * (configured under hystrix.command.&lt;service&gt; and hystrix.threadpool.&lt;service&gt;).
+ */
+@Configuration
+public class FeignHystrixConfig {
+
+  @Bean
+  public SetterFactory feignHystrixSetterFactory() {
+    return (target, method) -> HystrixCommand.Setter
+        .withGroupKey(HystrixCommandGroupKey.Factory.asKey(target.name()))
+        .andCommandKey(HystrixCommandKey.Factory.asKey(target.name()))
+        .andThreadPoolKey(HystrixThreadPoolKey.Factory.asKey(target.name()));
+  }
+}
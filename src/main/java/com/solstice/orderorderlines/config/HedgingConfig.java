@@ -0,0 +1,25 @@
+package com.solstice.orderorderlines.config;
+
+import com.solstice.orderorderlines.metrics.DownstreamCallCounter;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+@EnableConfigurationProperties(HedgingProperties.class)
+public class HedgingConfig {
+
+  @Bean
+  public ThreadPoolTaskExecutor hedgingExecutor(HedgingProperties hedgingProperties) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setThreadNamePrefix("hedging-");
+    executor.setCorePoolSize(hedgingProperties.getPoolSize());
+    executor.setMaxPoolSize(hedgingProperties.getPoolSize());
+    // No queue: an attempt waiting for a thread would only add to the latency it hedges against.
+    executor.setQueueCapacity(0);
+    executor.setAllowCoreThreadTimeOut(true);
+    executor.setTaskDecorator(DownstreamCallCounter.taskDecorator());
+    return executor;
+  }
+}
@@ -0,0 +1,90 @@
+package com.solstice.orderorderlines.config;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "hedging")
+public class HedgingProperties {
+
+  /**
+   * Threads running hedged client calls. A call that finds no free thread is made directly,
+   * without a hedge.
+   */
+  private int poolSize = 64;
+  private final Spec products = new Spec();
+  private final Spec shipments = new Spec();
+  private final Spec addresses = new Spec();
+
+  public int getPoolSize() {
+    return poolSize;
+  }
+
+  public void setPoolSize(int poolSize) {
+    this.poolSize = poolSize;
+  }
+
+  public Spec getProducts() {
+    return products;
+  }
+
+  public Spec getShipments() {
+    return shipments;
+  }
+
+  public Spec getAddresses() {
+    return addresses;
+  }
+
+  public static class Spec {
+
+    /**
+     * Send a second attempt when the first one has not answered within the hedge delay; the
+     * first response wins.
+     */
+    private boolean enabled = false;
+    /**
+     * Latency percentile of recent attempts used as the hedge delay.
+     */
+    private double percentile = 0.95;
+    /**
+     * Lower bound of the hedge delay, also used until enough attempts have been observed.
+     */
+    private Duration minDelay = Duration.ofMillis(20);
+    /**
+     * Hedges allowed as a percentage of calls. Once spent, calls wait for their first attempt.
+     */
+    private double budgetPercent = 5;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public double getPercentile() {
+      return percentile;
+    }
+
+    public void setPercentile(double percentile) {
+      this.percentile = percentile;
+    }
+
+    public Duration getMinDelay() {
+      return minDelay;
+    }
+
+    public void setMinDelay(Duration minDelay) {
+      this.minDelay = minDelay;
+    }
+
+    public double getBudgetPercent() {
+      return budgetPercent;
+    }
+
+    public void setBudgetPercent(double budgetPercent) {
+      this.budgetPercent = budgetPercent;
+    }
+  }
+}
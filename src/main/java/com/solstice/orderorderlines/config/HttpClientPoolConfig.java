@@ -0,0 +1,61 @@
+package com.solstice.orderorderlines.config;
+
+import com.solstice.orderorderlines.metrics.InstrumentedConnectionManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Pooled Apache HttpClient behind the Feign clients. Spring Cloud's load-balanced Feign client
+ * picks up these beans in place of its own defaults.
+ */
+@Configuration
+@EnableConfigurationProperties(HttpClientPoolProperties.class)
+public class HttpClientPoolConfig {
+
+  @Bean
+  public InstrumentedConnectionManager feignConnectionManager(
+      HttpClientPoolProperties httpClientPoolProperties, MeterRegistry meterRegistry) {
+    InstrumentedConnectionManager connectionManager = new InstrumentedConnectionManager(
+        httpClientPoolProperties.getTimeToLive().toMillis(), meterRegistry);
+    connectionManager.setMaxTotal(httpClientPoolProperties.getMaxConnections());
+    connectionManager.setDefaultMaxPerRoute(httpClientPoolProperties.getMaxConnectionsPerRoute());
+    connectionManager.setValidateAfterInactivity(
+        (int) httpClientPoolProperties.getValidateAfterInactivity().toMillis());
+    // Also enforced here: a per-request config built from ribbon's timeouts may not carry the
+    // default connection request timeout over.
+    connectionManager.setMaxLeaseWait(
+        httpClientPoolProperties.getConnectionRequestTimeout().toMillis());
+    return connectionManager;
+  }
+
+  @Bean
+  public CloseableHttpClient feignHttpClient(InstrumentedConnectionManager feignConnectionManager,
+      HttpClientPoolProperties httpClientPoolProperties) {
+    long keepAlive = httpClientPoolProperties.getKeepAlive().toMillis();
+    return HttpClientBuilder.create()
+        .setConnectionManager(feignConnectionManager)
+        .setKeepAliveStrategy((response, context) -> {
+          long announced = DefaultConnectionKeepAliveStrategy.INSTANCE
+              .getKeepAliveDuration(response, context);
+          return announced > 0 ? Math.min(announced, keepAlive) : keepAlive;
+        })
+        .evictExpiredConnections()
+        .evictIdleConnections(httpClientPoolProperties.getIdleTimeout().toMillis(),
+            TimeUnit.MILLISECONDS)
+        .setDefaultRequestConfig(RequestConfig.custom()
+            .setConnectTimeout((int) httpClientPoolProperties.getConnectTimeout().toMillis())
+            .setConnectionRequestTimeout(
+                (int) httpClientPoolProperties.getConnectionRequestTimeout().toMillis())
+            .setRedirectsEnabled(false)
+            .build())
+        .disableCookieManagement()
+        .build();
+  }
+}
@@ -0,0 +1,105 @@
+package com.solstice.orderorderlines.config;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "http-client-pool")
+public class HttpClientPoolProperties {
+
+  /**
+   * Connections kept across all downstream services.
+   */
+  private int maxConnections = 200;
+  /**
+   * Connections kept per downstream instance. Calls beyond it wait for a lease.
+   */
+  private int maxConnectionsPerRoute = 50;
+  private Duration connectTimeout = Duration.ofSeconds(2);
+  /**
+   * Longest a call waits to lease a connection when the route is at its limit. Together with the
+   * ribbon ReadTimeout it has to stay below the service's Hystrix timeout, so a saturated pool
+   * fails the call with a ConnectionPoolTimeoutException instead of leaving the lease wait running
+   * on after Hystrix has given up on it.
+   */
+  private Duration connectionRequestTimeout = Duration.ofMillis(500);
+  /**
+   * Longest a pooled connection is reused, however active it is.
+   */
+  private Duration timeToLive = Duration.ofMinutes(15);
+  /**
+   * Connections unused for this long are closed by a background evictor.
+   */
+  private Duration idleTimeout = Duration.ofSeconds(30);
+  /**
+   * Keep-alive assumed when a response does not announce one, and the cap for those that do.
+   */
+  private Duration keepAlive = Duration.ofSeconds(30);
+  /**
+   * Connections idle for longer than this are checked for staleness before being reused.
+   */
+  private Duration validateAfterInactivity = Duration.ofSeconds(2);
+
+  public int getMaxConnections() {
+    return maxConnections;
+  }
+
+  public void setMaxConnections(int maxConnections) {
+    this.maxConnections = maxConnections;
+  }
+
+  public int getMaxConnectionsPerRoute() {
+    return maxConnectionsPerRoute;
+  }
+
+  public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+    this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+  }
+
+  public Duration getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  public void setConnectTimeout(Duration connectTimeout) {
+    this.connectTimeout = connectTimeout;
+  }
+
+  public Duration getConnectionRequestTimeout() {
+    return connectionRequestTimeout;
+  }
+
+  public void setConnectionRequestTimeout(Duration connectionRequestTimeout) {
+    this.connectionRequestTimeout = connectionRequestTimeout;
+  }
+
+  public Duration getTimeToLive() {
+    return timeToLive;
+  }
+
+  public void setTimeToLive(Duration timeToLive) {
+    this.timeToLive = timeToLive;
+  }
+
+  public Duration getIdleTimeout() {
+    return idleTimeout;
+  }
+
+  public void setIdleTimeout(Duration idleTimeout) {
+    this.idleTimeout = idleTimeout;
+  }
+
+  public Duration getKeepAlive() {
+    return keepAlive;
+  }
+
+  public void setKeepAlive(Duration keepAlive) {
+    this.keepAlive = keepAlive;
+  }
+
+  public Duration getValidateAfterInactivity() {
+    return validateAfterInactivity;
+  }
+
+  public void setValidateAfterInactivity(Duration validateAfterInactivity) {
+    this.validateAfterInactivity = validateAfterInactivity;
+  }
+}
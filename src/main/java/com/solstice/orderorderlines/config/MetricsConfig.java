@@ -0,0 +1,22 @@
+package com.solstice.orderorderlines.config;
+
+import com.solstice.orderorderlines.metrics.DownstreamCallsInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+
+  private final MeterRegistry meterRegistry;
+
+  public MetricsConfig(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(new DownstreamCallsInterceptor(meterRegistry));
+  }
+}
@@ -0,0 +1,64 @@
+package com.solstice.orderorderlines.config;
+
+import com.solstice.orderorderlines.config.OrderServiceProperties.Details;
+import com.solstice.orderorderlines.config.OrderServiceProperties.ReadModel;
+import com.solstice.orderorderlines.metrics.DownstreamCallCounter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.ThreadPoolExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+@EnableConfigurationProperties(OrderServiceProperties.class)
+@EnableAsync
+@EnableScheduling
+public class OrderDetailsConfig {
+
+  public static final String DROPPED_REBUILDS_METRIC = "orders.details.rebuilds.dropped";
+
+  private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+  @Bean
+  public ThreadPoolTaskExecutor orderDetailsExecutor(OrderServiceProperties orderServiceProperties) {
+    Details details = orderServiceProperties.getDetails();
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setThreadNamePrefix("order-details-");
+    executor.setCorePoolSize(details.getCorePoolSize());
+    executor.setMaxPoolSize(details.getMaxPoolSize());
+    executor.setQueueCapacity(details.getQueueCapacity());
+    // Once the queue is full the build is rejected with 503; a lookup run on the request thread
+    // would escape the details timeout.
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+    executor.setTaskDecorator(DownstreamCallCounter.taskDecorator());
+    return executor;
+  }
+
+  @Bean
+  public ThreadPoolTaskExecutor orderDetailsRebuildExecutor(
+      OrderServiceProperties orderServiceProperties, MeterRegistry meterRegistry) {
+    ReadModel readModel = orderServiceProperties.getReadModel();
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setThreadNamePrefix("order-details-rebuild-");
+    executor.setCorePoolSize(readModel.getRebuildPoolSize());
+    executor.setMaxPoolSize(readModel.getRebuildPoolSize());
+    executor.setQueueCapacity(readModel.getRebuildQueueCapacity());
+    // Running a rebuild on the caller would put the downstream fan-out back on the request
+    // thread; a dropped rebuild is redone by the refresher once the snapshot is stale or missing.
+    Counter dropped = meterRegistry.counter(DROPPED_REBUILDS_METRIC);
+    executor.setRejectedExecutionHandler((rebuild, pool) -> {
+      dropped.increment();
+      logger.warn("Order details rebuild queue is full, dropped a rebuild; {} dropped so far",
+          (long) dropped.count());
+    });
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+    return executor;
+  }
+}
@@ -0,0 +1,235 @@
+package com.solstice.orderorderlines.config;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "orders")
+public class OrderServiceProperties {
+
+  private final Details details = new Details();
+  private final Paging paging = new Paging();
+  private final Batch batch = new Batch();
+  private final ReadModel readModel = new ReadModel();
+
+  public Details getDetails() {
+    return details;
+  }
+
+  public Paging getPaging() {
+    return paging;
+  }
+
+  public Batch getBatch() {
+    return batch;
+  }
+
+  public ReadModel getReadModel() {
+    return readModel;
+  }
+
+  public static class Details {
+
+    /**
+     * Run the address, shipment and product lookups of every order concurrently on the
+     * order details executor instead of one after another on the request thread.
+     */
+    private boolean parallel = true;
+    private int corePoolSize = 8;
+    private int maxPoolSize = 32;
+    /**
+     * Lookups waiting for a thread; once full, further details builds are answered with 503.
+     */
+    private int queueCapacity = 1000;
+    /**
+     * Upper bound for building all order details of a single request.
+     */
+    private Duration timeout = Duration.ofSeconds(5);
+
+    public boolean isParallel() {
+      return parallel;
+    }
+
+    public void setParallel(boolean parallel) {
+      this.parallel = parallel;
+    }
+
+    public int getCorePoolSize() {
+      return corePoolSize;
+    }
+
+    public void setCorePoolSize(int corePoolSize) {
+      this.corePoolSize = corePoolSize;
+    }
+
+    public int getMaxPoolSize() {
+      return maxPoolSize;
+    }
+
+    public void setMaxPoolSize(int maxPoolSize) {
+      this.maxPoolSize = maxPoolSize;
+    }
+
+    public int getQueueCapacity() {
+      return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+      this.queueCapacity = queueCapacity;
+    }
+
+    public Duration getTimeout() {
+      return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+      this.timeout = timeout;
+    }
+  }
+
+  public static class Paging {
+
+    /**
+     * Page size used by GET /orders when the request does not ask for one.
+     */
+    private int defaultSize = 100;
+    /**
+     * Larger requested page sizes are capped to this value.
+     */
+    private int maxSize = 1000;
+
+    public int getDefaultSize() {
+      return defaultSize;
+    }
+
+    public void setDefaultSize(int defaultSize) {
+      this.defaultSize = defaultSize;
+    }
+
+    public int getMaxSize() {
+      return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+      this.maxSize = maxSize;
+    }
+  }
+
+  public static class Batch {
+
+    /**
+     * Largest number of orders accepted by a single POST /orders/batch.
+     */
+    private int maxSize = 5000;
+    /**
+     * Orders persisted per transaction; a failing chunk does not undo the others.
+     */
+    private int chunkSize = 500;
+
+    public int getMaxSize() {
+      return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+      this.maxSize = maxSize;
+    }
+
+    public int getChunkSize() {
+      return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+      this.chunkSize = chunkSize;
+    }
+  }
+
+  public static class ReadModel {
+
+    /**
+     * Order details built longer ago than this are rebuilt by the background refresher, which
+     * picks up changes made in the downstream services.
+     */
+    private Duration maxAge = Duration.ofMinutes(10);
+    /**
+     * Delay between two runs of the background refresher.
+     */
+    private Duration refreshInterval = Duration.ofMinutes(1);
+    /**
+     * Largest number of orders rebuilt by a single refresher run.
+     */
+    private int refreshBatchSize = 500;
+    /**
+     * Orders the background refresher builds at a time. Each build has to finish within the
+     * details timeout, so this stays a small fraction of the batch size.
+     */
+    private int refreshChunkSize = 50;
+    /**
+     * How long one instance holds the refresher lock; longer than a whole run, so two instances
+     * never refresh at once, and short enough that a dead holder's lease soon runs out.
+     */
+    private Duration refreshLockTtl = Duration.ofMinutes(5);
+    /**
+     * Threads rebuilding the details of orders changed by a write, off the request thread.
+     */
+    private int rebuildPoolSize = 2;
+    /**
+     * Rebuilds waiting for a thread; beyond this they are dropped and left to the refresher.
+     */
+    private int rebuildQueueCapacity = 10000;
+
+    public Duration getMaxAge() {
+      return maxAge;
+    }
+
+    public void setMaxAge(Duration maxAge) {
+      this.maxAge = maxAge;
+    }
+
+    public Duration getRefreshInterval() {
+      return refreshInterval;
+    }
+
+    public void setRefreshInterval(Duration refreshInterval) {
+      this.refreshInterval = refreshInterval;
+    }
+
+    public int getRefreshBatchSize() {
+      return refreshBatchSize;
+    }
+
+    public void setRefreshBatchSize(int refreshBatchSize) {
+      this.refreshBatchSize = refreshBatchSize;
+    }
+
+    public int getRefreshChunkSize() {
+      return refreshChunkSize;
+    }
+
+    public void setRefreshChunkSize(int refreshChunkSize) {
+      this.refreshChunkSize = refreshChunkSize;
+    }
+
+    public Duration getRefreshLockTtl() {
+      return refreshLockTtl;
+    }
+
+    public void setRefreshLockTtl(Duration refreshLockTtl) {
+      this.refreshLockTtl = refreshLockTtl;
+    }
+
+    public int getRebuildPoolSize() {
+      return rebuildPoolSize;
+    }
+
+    public void setRebuildPoolSize(int rebuildPoolSize) {
+      this.rebuildPoolSize = rebuildPoolSize;
+    }
+
+    public int getRebuildQueueCapacity() {
+      return rebuildQueueCapacity;
+    }
+
+    public void setRebuildQueueCapacity(int rebuildQueueCapacity) {
+      this.rebuildQueueCapacity = rebuildQueueCapacity;
+    }
+  }
+}
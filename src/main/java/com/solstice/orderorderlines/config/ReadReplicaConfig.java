@@ -0,0 +1,74 @@
+package com.solstice.orderorderlines.config;
+
+import com.solstice.orderorderlines.dao.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Replaces the auto-configured DataSource with one that routes read-only transactions to the
+ * replicas listed under read-replicas.replicas. The primary stays on spring.datasource. Both
+ * get the driver properties under spring.datasource.hikari.data-source-properties, which only the
+ * auto-configured pool would otherwise see.
+ */
+@Configuration
+@EnableConfigurationProperties(ReadReplicaProperties.class)
+public class ReadReplicaConfig {
+
+  @Bean(destroyMethod = "close")
+  @ConditionalOnProperty(prefix = "read-replicas", name = "enabled", havingValue = "true")
+  public ReplicaRoutingDataSource replicaRoutingDataSource(
+      DataSourceProperties dataSourceProperties, ReadReplicaProperties readReplicaProperties,
+      Environment environment) {
+    Map<String, String> driverProperties = Binder.get(environment)
+        .bind("spring.datasource.hikari.data-source-properties",
+            Bindable.mapOf(String.class, String.class))
+        .orElseGet(Collections::emptyMap);
+
+    HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+        .type(HikariDataSource.class)
+        .build();
+    primary.setPoolName("primary");
+    driverProperties.forEach(primary::addDataSourceProperty);
+
+    List<DataSource> replicas = new ArrayList<>();
+    for (ReadReplicaProperties.Replica replica : readReplicaProperties.getReplicas()) {
+      HikariDataSource dataSource = DataSourceBuilder.create()
+          .type(HikariDataSource.class)
+          .driverClassName(dataSourceProperties.determineDriverClassName())
+          .url(replica.getUrl())
+          .username(replica.getUsername() != null
+              ? replica.getUsername() : dataSourceProperties.determineUsername())
+          .password(replica.getPassword() != null
+              ? replica.getPassword() : dataSourceProperties.determinePassword())
+          .build();
+      dataSource.setPoolName("replica-" + replicas.size());
+      dataSource.setMaximumPoolSize(readReplicaProperties.getMaxPoolSize());
+      dataSource.setReadOnly(true);
+      driverProperties.forEach(dataSource::addDataSourceProperty);
+      replicas.add(dataSource);
+    }
+    return new ReplicaRoutingDataSource(primary, replicas);
+  }
+
+  @Bean
+  @Primary
+  @ConditionalOnProperty(prefix = "read-replicas", name = "enabled", havingValue = "true")
+  public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+    return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+  }
+}
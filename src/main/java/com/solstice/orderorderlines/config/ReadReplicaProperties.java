@@ -0,0 +1,88 @@
+package com.solstice.orderorderlines.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "read-replicas")
+public class ReadReplicaProperties {
+
+  /**
+   * Routes read-only transactions to the replicas. Everything stays on spring.datasource when
+   * disabled.
+   */
+  private boolean enabled = false;
+  /**
+   * Reads of an order or account written by this instance within the window go to the primary.
+   * Should cover the replicas' usual lag.
+   */
+  private Duration readYourWritesWindow = Duration.ofSeconds(5);
+  private int maxPoolSize = 10;
+  private final List<Replica> replicas = new ArrayList<>();
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public Duration getReadYourWritesWindow() {
+    return readYourWritesWindow;
+  }
+
+  public void setReadYourWritesWindow(Duration readYourWritesWindow) {
+    this.readYourWritesWindow = readYourWritesWindow;
+  }
+
+  public int getMaxPoolSize() {
+    return maxPoolSize;
+  }
+
+  public void setMaxPoolSize(int maxPoolSize) {
+    this.maxPoolSize = maxPoolSize;
+  }
+
+  public List<Replica> getReplicas() {
+    return replicas;
+  }
+
+  public static class Replica {
+
+    private String url;
+    /**
+     * Defaults to spring.datasource.username.
+     */
+    private String username;
+    /**
+     * Defaults to spring.datasource.password.
+     */
+    private String password;
+
+    public String getUrl() {
+      return url;
+    }
+
+    public void setUrl(String url) {
+      this.url = url;
+    }
+
+    public String getUsername() {
+      return username;
+    }
+
+    public void setUsername(String username) {
+      this.username = username;
+    }
+
+    public String getPassword() {
+      return password;
+    }
+
+    public void setPassword(String password) {
+      this.password = password;
+    }
+  }
+}
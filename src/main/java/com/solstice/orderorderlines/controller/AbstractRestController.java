@@ -2,6 +2,8 @@ package com.solstice.orderorderlines.controller;
 
 import com.solstice.orderorderlines.exception.HTTP400Exception;
 import com.solstice.orderorderlines.exception.HTTP404Exception;
+import com.solstice.orderorderlines.exception.HTTP503Exception;
+import com.solstice.orderorderlines.exception.HTTP504Exception;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
@@ -27,6 +29,20 @@ public class AbstractRestController {
     return ex.getMessage();
   }
 
+  @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+  @ExceptionHandler(value = {HTTP503Exception.class})
+  public @ResponseBody String Handle503Exception(HTTP503Exception ex) {
+    logger.error("HTTP503Exception encountered and handled: {}", ex.toString());
+    return ex.getMessage();
+  }
+
+  @ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+  @ExceptionHandler(value = {HTTP504Exception.class})
+  public @ResponseBody String Handle504Exception(HTTP504Exception ex) {
+    logger.error("HTTP504Exception encountered and handled: {}", ex.toString());
+    return ex.getMessage();
+  }
+
   public static <T> T checkResourceFound(final T resource) {
     if (resource == null) {
       throw new HTTP404Exception("Resource not found");
@@ -1,13 +1,25 @@
 package com.solstice.orderorderlines.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.solstice.orderorderlines.exception.HTTP400Exception;
 import com.solstice.orderorderlines.exception.HTTP404Exception;
 import com.solstice.orderorderlines.model.Order;
+import com.solstice.orderorderlines.model.OrderBatchResult;
 import com.solstice.orderorderlines.model.OrderDetail;
 import com.solstice.orderorderlines.model.OrderLineItem;
+import com.solstice.orderorderlines.model.OrderPage;
+import com.solstice.orderorderlines.service.OrderDetailReadModel;
 import com.solstice.orderorderlines.service.OrderOrderLineService;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import javax.servlet.http.HttpServletResponse;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -19,27 +31,65 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/orders")
 public class OrderOrderLineController extends AbstractRestController{
 
+  public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+  public static final String NDJSON_VALUE = "application/x-ndjson";
+
   private OrderOrderLineService orderOrderLineService;
+  private OrderDetailReadModel orderDetailReadModel;
+  private ObjectMapper objectMapper;
 
-  public OrderOrderLineController(OrderOrderLineService orderOrderLineService) {
+  public OrderOrderLineController(OrderOrderLineService orderOrderLineService,
+      OrderDetailReadModel orderDetailReadModel, ObjectMapper objectMapper) {
     this.orderOrderLineService = orderOrderLineService;
+    this.orderDetailReadModel = orderDetailReadModel;
+    this.objectMapper = objectMapper;
   }
 
   @GetMapping
   public @ResponseBody List<Order> getOrders(
-      @RequestParam(value = "accountId", required = false) Long accountId) {
-    List<Order> orders;
-    orders = accountId != null ? orderOrderLineService.getOrdersByAccountId(accountId)
-        : orderOrderLineService.getOrders();
-    if (orders.isEmpty()) {
+      @RequestParam(value = "accountId", required = false) Long accountId,
+      @RequestParam(value = "cursor", required = false) String cursor,
+      @RequestParam(value = "size", required = false) Integer size,
+      HttpServletResponse response) {
+    OrderPage page = accountId != null
+        ? orderOrderLineService.getOrdersByAccountId(accountId, cursor, size)
+        : orderOrderLineService.getOrders(cursor, size);
+    if (page == null || page.getOrders().isEmpty()) {
       throw new HTTP404Exception("Resource not found");
     }
-    return orders;
+    if (page.getNextCursor() != null) {
+      response.setHeader(NEXT_CURSOR_HEADER, page.getNextCursor());
+    }
+    return page.getOrders();
+  }
+
+  @GetMapping(value = "/export", produces = NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> exportOrders() {
+    ObjectWriter writer = objectMapper.writer()
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    StreamingResponseBody body = outputStream -> {
+      try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+        generator.setRootValueSeparator(null);
+        orderOrderLineService.exportOrders(order -> {
+          try {
+            writer.writeValue(generator, order);
+            generator.writeRaw('\n');
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+      }
+    };
+    return ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType(NDJSON_VALUE))
+        .body(body);
   }
 
   @PostMapping
@@ -52,9 +102,19 @@ public class OrderOrderLineController extends AbstractRestController{
     return order;
   }
 
+  @PostMapping("/batch")
+  public @ResponseBody List<OrderBatchResult> createOrders(@RequestBody List<Order> body) {
+    return orderOrderLineService.createOrders(body);
+  }
+
   @GetMapping("/{accountId}")
-  public @ResponseBody List<OrderDetail> getOrderDetails(@PathVariable("accountId") long accountId) {
-    List<OrderDetail> orderDetails = orderOrderLineService.getOrderDetails(accountId);
+  public @ResponseBody List<OrderDetail> getOrderDetails(@PathVariable("accountId") long accountId,
+      WebRequest request) {
+    List<OrderDetail> orderDetails = orderDetailReadModel.getOrderDetails(accountId,
+        request::checkNotModified);
+    if (orderDetails == null) {
+      return null;
+    }
     if (orderDetails.isEmpty()) {
       throw new HTTP404Exception("Resource not found");
     }
@@ -74,7 +134,12 @@ public class OrderOrderLineController extends AbstractRestController{
   }
 
   @GetMapping("/{id}/lines")
-  public @ResponseBody List<OrderLineItem> getOrderLineItems(@PathVariable("id") long id) {
+  public @ResponseBody List<OrderLineItem> getOrderLineItems(@PathVariable("id") long id,
+      WebRequest request) {
+    String eTag = orderOrderLineService.getOrderETag(id);
+    if (eTag != null && request.checkNotModified(eTag)) {
+      return null;
+    }
     List<OrderLineItem> orderLineItems = orderOrderLineService.getOrderLineItems(id);
     if(orderLineItems.isEmpty()) {
       throw new HTTP404Exception("Resource not found");
@@ -0,0 +1,87 @@
+package com.solstice.orderorderlines.dao;
+
+import com.solstice.orderorderlines.model.OrderDetailSnapshot;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface OrderDetailSnapshotRepository extends CrudRepository<OrderDetailSnapshot, Long> {
+
+  List<OrderDetailSnapshot> findAllByAccountIdOrderByOrderDateAscOrderNumberAsc(long accountId);
+
+  @Query("select count(s) as count, coalesce(sum(s.orderNumber), 0) as orderNumberSum, "
+      + "coalesce(sum(s.revision), 0) as revisionSum, "
+      + "coalesce(sum(s.version), 0) as versionSum "
+      + "from OrderDetailSnapshot s where s.accountId = :accountId")
+  OrderDetailSnapshotStamp findStampByAccountId(@Param("accountId") long accountId);
+
+  @Query("select s.orderNumber from OrderDetailSnapshot s where s.refreshedAt < :before "
+      + "order by s.refreshedAt")
+  List<Long> findOrderNumbersRefreshedBefore(@Param("before") LocalDateTime before,
+      Pageable pageable);
+
+  /**
+   * Saves the snapshots, except those whose order already has a snapshot of a newer revision:
+   * rebuilds run concurrently and a slow one of an older revision can finish last. The stored
+   * snapshots are locked until the save commits, and each one saved over gets the next version.
+   * Returns the snapshots saved.
+   */
+  @Transactional
+  default List<OrderDetailSnapshot> saveAllUnlessNewer(List<OrderDetailSnapshot> snapshots) {
+    if (snapshots.isEmpty()) {
+      return snapshots;
+    }
+    Map<Long, OrderDetailSnapshot> stored = findAllForUpdateByOrderNumberIn(snapshots.stream()
+        .map(OrderDetailSnapshot::getOrderNumber)
+        .collect(Collectors.toList())).stream()
+        .collect(Collectors.toMap(OrderDetailSnapshot::getOrderNumber, Function.identity()));
+    List<OrderDetailSnapshot> toSave = new ArrayList<>();
+    for (OrderDetailSnapshot snapshot : snapshots) {
+      OrderDetailSnapshot storedSnapshot = stored.get(snapshot.getOrderNumber());
+      if (storedSnapshot == null) {
+        toSave.add(snapshot);
+      } else if (snapshot.getRevision() >= storedSnapshot.getRevision()) {
+        snapshot.setVersion(storedSnapshot.getVersion() + 1);
+        toSave.add(snapshot);
+      }
+    }
+    saveAll(toSave);
+    return toSave;
+  }
+
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select s from OrderDetailSnapshot s where s.orderNumber in :orderNumbers")
+  List<OrderDetailSnapshot> findAllForUpdateByOrderNumberIn(
+      @Param("orderNumbers") Collection<Long> orderNumbers);
+
+  @Query("select s.orderNumber from OrderDetailSnapshot s where s.orderNumber in :orderNumbers")
+  List<Long> findOrderNumbersByOrderNumberIn(
+      @Param("orderNumbers") Collection<Long> orderNumbers);
+
+  /**
+   * Backdates the snapshots to the given time, so the refresher rebuilds them on its next run.
+   */
+  @Modifying
+  @Transactional
+  @Query("update OrderDetailSnapshot s set s.refreshedAt = :due, s.version = s.version + 1 "
+      + "where s.orderNumber in :orderNumbers and s.refreshedAt > :due")
+  int expireByOrderNumberIn(@Param("orderNumbers") Collection<Long> orderNumbers,
+      @Param("due") LocalDateTime due);
+
+  @Modifying
+  @Transactional
+  @Query("delete from OrderDetailSnapshot s where s.orderNumber in :orderNumbers")
+  int deleteByOrderNumberIn(@Param("orderNumbers") Collection<Long> orderNumbers);
+}
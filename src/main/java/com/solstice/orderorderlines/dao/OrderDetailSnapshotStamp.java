@@ -0,0 +1,12 @@
+package com.solstice.orderorderlines.dao;
+
+/**
+ * Summary of an account's order detail snapshots that changes whenever one of them is added,
+ * rebuilt or removed.
+ */
+public interface OrderDetailSnapshotStamp extends OrderNumbersStamp {
+
+  long getRevisionSum();
+
+  long getVersionSum();
+}
@@ -0,0 +1,12 @@
+package com.solstice.orderorderlines.dao;
+
+/**
+ * Count and sum of a set of order numbers; two sets with the same stamp almost always hold the
+ * same orders.
+ */
+public interface OrderNumbersStamp {
+
+  long getCount();
+
+  long getOrderNumberSum();
+}
@@ -1,20 +1,105 @@
 package com.solstice.orderorderlines.dao;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_MODE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 import com.solstice.orderorderlines.model.Order;
 import com.solstice.orderorderlines.model.OrderLineItem;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface OrderRepository extends CrudRepository<Order, Long> {
 
   List<Order> findAll();
 
-  Order findByOrderNumber(long orderNumber);
+  /**
+   * Loads by id rather than by query, so hot orders are served from the second-level cache.
+   */
+  default Order findByOrderNumber(long orderNumber) {
+    return findById(orderNumber).orElse(null);
+  }
 
-  @Query("select o.orderLineItems from Order o where o.id = :id")
-  List<OrderLineItem> findOrderLineItemsByOrderNumber(@Param("id") long id);
+  /**
+   * Reads through the cached order and its cached line item collection; empty if there is no
+   * such order.
+   */
+  @Transactional(readOnly = true)
+  default List<OrderLineItem> findOrderLineItemsByOrderNumber(long orderNumber) {
+    return findById(orderNumber)
+        .<List<OrderLineItem>>map(order -> new ArrayList<>(order.getOrderLineItems()))
+        .orElseGet(ArrayList::new);
+  }
 
   List<Order> findAllByAccountIdOrderByOrderDate(long accountId);
+
+  /**
+   * Loads the order from the database and locks its row until the transaction ends. Writers load
+   * through this and change the order as a managed entity, so concurrent writes take turns
+   * bumping its revision and only this order's cache entries are updated.
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select o from Order o where o.orderNumber = :orderNumber")
+  Order findForUpdateByOrderNumber(@Param("orderNumber") long orderNumber);
+
+  /**
+   * Always read from the database, never from a cache, so an ETag built from it is current.
+   */
+  @Query("select o.revision from Order o where o.orderNumber = :orderNumber")
+  Long findRevisionByOrderNumber(@Param("orderNumber") long orderNumber);
+
+  @Query("select count(o) as count, coalesce(sum(o.orderNumber), 0) as orderNumberSum "
+      + "from Order o where o.accountId = :accountId")
+  OrderNumbersStamp findStampByAccountId(@Param("accountId") long accountId);
+
+  @Query("select distinct o from Order o left join fetch o.orderLineItems "
+      + "where o.accountId = :accountId order by o.orderDate")
+  List<Order> findAllWithOrderLineItemsByAccountIdOrderByOrderDate(
+      @Param("accountId") long accountId);
+
+  @Query("select distinct o from Order o left join fetch o.orderLineItems "
+      + "where o.orderNumber in :orderNumbers")
+  List<Order> findAllWithOrderLineItemsByOrderNumberIn(
+      @Param("orderNumbers") Collection<Long> orderNumbers);
+
+  // IGNORE keeps the export from pushing every order and line through the second-level cache,
+  // which would evict the entries the regular reads depend on.
+  @QueryHints({
+      @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+      @QueryHint(name = HINT_CACHE_MODE, value = "IGNORE")})
+  @Query("select o from Order o left join fetch o.orderLineItems order by o.orderNumber")
+  Stream<Order> streamAllWithOrderLineItems();
+
+  @Query("select o.orderNumber from Order o where o.orderNumber > :after order by o.orderNumber")
+  List<Long> findOrderNumbersAfter(@Param("after") long after, Pageable pageable);
+
+  @Query("select o.orderNumber from Order o where o.accountId = :accountId "
+      + "order by o.orderDate, o.orderNumber")
+  List<Long> findOrderNumbersByAccountId(@Param("accountId") long accountId, Pageable pageable);
+
+  @Query("select o.orderNumber from Order o where o.accountId = :accountId "
+      + "and (o.orderDate > :orderDate "
+      + "or (o.orderDate = :orderDate and o.orderNumber > :orderNumber)) "
+      + "order by o.orderDate, o.orderNumber")
+  List<Long> findOrderNumbersByAccountIdAfter(
+      @Param("accountId") long accountId,
+      @Param("orderDate") LocalDateTime orderDate,
+      @Param("orderNumber") long orderNumber,
+      Pageable pageable);
+
+  @Query("select o.orderNumber from Order o where not exists "
+      + "(select s.orderNumber from OrderDetailSnapshot s where s.orderNumber = o.orderNumber) "
+      + "order by o.orderNumber")
+  List<Long> findOrderNumbersWithoutDetailSnapshot(Pageable pageable);
 }
@@ -0,0 +1,76 @@
+package com.solstice.orderorderlines.dao;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Hands out replica connections, round robin, to read-only transactions and primary connections
+ * to everything else. It has to sit behind a LazyConnectionDataSourceProxy: the transaction
+ * manager asks for a connection before it marks the transaction read-only, and only the lazy
+ * proxy defers the choice until the first statement.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+  private static final String PRIMARY = "primary";
+  private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = new ThreadLocal<>();
+
+  private final List<DataSource> dataSources = new ArrayList<>();
+  private final int replicaCount;
+  private final AtomicInteger nextReplica = new AtomicInteger();
+
+  public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas) {
+    Map<Object, Object> targetDataSources = new HashMap<>();
+    targetDataSources.put(PRIMARY, primary);
+    for (int i = 0; i < replicas.size(); i++) {
+      targetDataSources.put(i, replicas.get(i));
+    }
+    setTargetDataSources(targetDataSources);
+    setDefaultTargetDataSource(primary);
+    this.dataSources.add(primary);
+    this.dataSources.addAll(replicas);
+    this.replicaCount = replicas.size();
+  }
+
+  /**
+   * Runs the read on the primary even inside a read-only transaction, for data the replicas may
+   * not have caught up with yet.
+   */
+  public static <T> T onPrimary(Supplier<T> read) {
+    Boolean pinned = PINNED_TO_PRIMARY.get();
+    PINNED_TO_PRIMARY.set(Boolean.TRUE);
+    try {
+      return read.get();
+    } finally {
+      if (pinned == null) {
+        PINNED_TO_PRIMARY.remove();
+      }
+    }
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    if (replicaCount == 0 || PINNED_TO_PRIMARY.get() != null
+        || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      return PRIMARY;
+    }
+    return Math.floorMod(nextReplica.getAndIncrement(), replicaCount);
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (DataSource dataSource : dataSources) {
+      if (dataSource instanceof Closeable) {
+        ((Closeable) dataSource).close();
+      }
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package com.solstice.orderorderlines.dao;
+
+import com.solstice.orderorderlines.model.SchedulerLock;
+import java.time.LocalDateTime;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface SchedulerLockRepository extends CrudRepository<SchedulerLock, String> {
+
+  /**
+   * Takes the lease until the given time if nobody holds it; 1 if it was taken, 0 otherwise. The
+   * row must exist, the migrations insert one per job.
+   */
+  @Modifying
+  @Transactional
+  @Query("update SchedulerLock l set l.lockedUntil = :until, l.lockedBy = :owner "
+      + "where l.name = :name and l.lockedUntil <= :now")
+  int lock(@Param("name") String name, @Param("owner") String owner,
+      @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+  @Modifying
+  @Transactional
+  @Query("update SchedulerLock l set l.lockedUntil = :now "
+      + "where l.name = :name and l.lockedBy = :owner")
+  int unlock(@Param("name") String name, @Param("owner") String owner,
+      @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,22 @@
+package com.solstice.orderorderlines.exception;
+
+public class HTTP503Exception extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  public HTTP503Exception() {
+    super();
+  }
+
+  public HTTP503Exception(String message, Throwable cause) {
+    super(message, cause);
+  }
+
+  public HTTP503Exception(String message) {
+    super(message);
+  }
+
+  public HTTP503Exception(Throwable cause) {
+    super(cause);
+  }
+}
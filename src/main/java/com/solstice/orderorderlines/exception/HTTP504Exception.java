@@ -0,0 +1,22 @@
+package com.solstice.orderorderlines.exception;
+
+public class HTTP504Exception extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  public HTTP504Exception() {
+    super();
+  }
+
+  public HTTP504Exception(String message, Throwable cause) {
+    super(message, cause);
+  }
+
+  public HTTP504Exception(String message) {
+    super(message);
+  }
+
+  public HTTP504Exception(Throwable cause) {
+    super(cause);
+  }
+}
@@ -6,7 +6,8 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 
-@FeignClient(value = "account-address-service", fallback = AccountAddressFallback.class)
+@FeignClient(value = "account-address-service", qualifier = "accountAddressFeignClient",
+    primary = false, fallback = AccountAddressFallback.class)
 public interface AccountAddressClient {
   @RequestMapping("/accounts/{accountId}/address/{addressId}")
   Address getAddressByAccountIdAndAddressId(
@@ -17,8 +18,19 @@ public interface AccountAddressClient {
 @Component
 class AccountAddressFallback implements AccountAddressClient {
 
+  private final LastKnownGoodStore lastKnownGoodStore;
+
+  AccountAddressFallback(LastKnownGoodStore lastKnownGoodStore) {
+    this.lastKnownGoodStore = lastKnownGoodStore;
+  }
+
   @Override
   public Address getAddressByAccountIdAndAddressId(long accountId, long addressId) {
-    return new Address("","","","","","");
+    Address address = lastKnownGoodStore.getAddress(accountId, addressId);
+    if (address == null) {
+      address = new Address("","","","","","");
+      address.setFallback(true);
+    }
+    return address;
   }
 }
\ No newline at end of file
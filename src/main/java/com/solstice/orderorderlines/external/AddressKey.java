@@ -0,0 +1,43 @@
+package com.solstice.orderorderlines.external;
+
+import java.util.Objects;
+
+/**
+ * An account's address. Address ids are only unique within an account, so every lookup, cache
+ * and dedupe of addresses is keyed on both.
+ */
+public final class AddressKey {
+
+  final long accountId;
+  final long addressId;
+
+  public AddressKey(long accountId, long addressId) {
+    this.accountId = accountId;
+    this.addressId = addressId;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    AddressKey that = (AddressKey) o;
+    return accountId == that.accountId && addressId == that.addressId;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(accountId, addressId);
+  }
+
+  @Override
+  public String toString() {
+    return "AddressKey{" +
+        "accountId=" + accountId +
+        ", addressId=" + addressId +
+        '}';
+  }
+}
@@ -0,0 +1,69 @@
+package com.solstice.orderorderlines.external;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.solstice.orderorderlines.config.ClientCacheProperties;
+import com.solstice.orderorderlines.model.Address;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+/**
+ * Serves shipping addresses per (accountId, addressId) from a bounded local cache in front of
+ * account-address-service. Empty fallback addresses are never cached.
+ */
+@Primary
+@Component
+class CachingAccountAddressClient implements AccountAddressClient {
+
+  private final AccountAddressClient accountAddressClient;
+  private final AccountAddressFallback accountAddressFallback;
+  private final LoadingCache<AddressKey, Address> addresses;
+
+  CachingAccountAddressClient(
+      @Qualifier("accountAddressFeignClient") AccountAddressClient accountAddressClient,
+      AccountAddressFallback accountAddressFallback,
+      ClientCacheProperties clientCacheProperties,
+      MeterRegistry meterRegistry) {
+    this.accountAddressClient = accountAddressClient;
+    this.accountAddressFallback = accountAddressFallback;
+    this.addresses = ClientCaches.newBuilder(clientCacheProperties.getAddresses())
+        .build(new AddressLoader());
+    CaffeineCacheMetrics.monitor(meterRegistry, addresses, "addresses");
+  }
+
+  @Override
+  public Address getAddressByAccountIdAndAddressId(long accountId, long addressId) {
+    Address address = addresses.get(new AddressKey(accountId, addressId));
+    return address != null ? address
+        : accountAddressFallback.getAddressByAccountIdAndAddressId(accountId, addressId);
+  }
+
+  private static boolean isCacheable(Address address) {
+    return address != null && !address.isFallback();
+  }
+
+  private class AddressLoader implements CacheLoader<AddressKey, Address> {
+
+    @Override
+    public Address load(AddressKey key) {
+      Address address = accountAddressClient
+          .getAddressByAccountIdAndAddressId(key.accountId, key.addressId);
+      return isCacheable(address) ? address : null;
+    }
+
+    @Override
+    public Address reload(AddressKey key, Address oldValue) {
+      Address address = accountAddressClient
+          .getAddressByAccountIdAndAddressId(key.accountId, key.addressId);
+      if (!isCacheable(address)) {
+        // Failing the refresh keeps the current entry until its ttl runs out.
+        throw new IllegalStateException(
+            "account-address-service unavailable refreshing address " + key);
+      }
+      return address;
+    }
+  }
+}
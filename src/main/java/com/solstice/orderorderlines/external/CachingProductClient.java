@@ -0,0 +1,126 @@
+package com.solstice.orderorderlines.external;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.solstice.orderorderlines.config.ClientCacheProperties;
+import com.solstice.orderorderlines.model.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+/**
+ * Serves product lookups from a bounded local cache in front of product-service. Fallback
+ * products are handed back to the caller but never cached. Single misses are loaded through the
+ * {@link ProductLookupCollapser}. Products product-service does not know are left out of the
+ * result, so callers can tell a bad product id from an outage.
+ */
+@Primary
+@Component
+class CachingProductClient implements ProductClient {
+
+  private final ProductClient productClient;
+  private final ProductClientFallback productClientFallback;
+  private final ProductLookupCollapser productLookupCollapser;
+  private final LoadingCache<Long, Product> products;
+
+  CachingProductClient(
+      @Qualifier("productFeignClient") ProductClient productClient,
+      ProductClientFallback productClientFallback,
+      ProductLookupCollapser productLookupCollapser,
+      ClientCacheProperties clientCacheProperties,
+      MeterRegistry meterRegistry) {
+    this.productClient = productClient;
+    this.productClientFallback = productClientFallback;
+    this.productLookupCollapser = productLookupCollapser;
+    this.products = ClientCaches.newBuilder(clientCacheProperties.getProducts())
+        .build(new ProductLoader());
+    CaffeineCacheMetrics.monitor(meterRegistry, products, "products");
+  }
+
+  /**
+   * The product, a fallback product if product-service is unavailable, or null if it does not
+   * know the id.
+   */
+  @Override
+  public Product getProductById(long id) {
+    Product product = products.getIfPresent(id);
+    if (product == null) {
+      product = productLookupCollapser.getProductById(id);
+      if (isCacheable(product)) {
+        products.put(id, product);
+      }
+    }
+    return product;
+  }
+
+  @Override
+  public List<Product> getProductsByIds(Collection<Long> ids) {
+    Map<Long, Product> found = new HashMap<>(products.getAllPresent(ids));
+    List<Long> missing = ids.stream()
+        .filter(id -> !found.containsKey(id))
+        .distinct()
+        .collect(Collectors.toList());
+    if (!missing.isEmpty()) {
+      found.putAll(load(missing));
+    }
+    List<Product> result = new ArrayList<>(ids.size());
+    for (Long id : ids) {
+      Product product = found.get(id);
+      if (product != null) {
+        result.add(product);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Only a failed call gets placeholders; an id missing from a successful answer is unknown.
+   * Failed calls normally come back as fallback products from the Feign proxy already.
+   */
+  private Map<Long, Product> load(List<Long> ids) {
+    Map<Long, Product> loaded = new HashMap<>();
+    List<Product> found = productClient.getProductsByIds(ids);
+    if (found == null) {
+      ids.forEach(id -> loaded.put(id, productClientFallback.getProductById(id)));
+      return loaded;
+    }
+    for (Product product : found) {
+      loaded.put(product.getId(), product);
+      if (isCacheable(product)) {
+        products.put(product.getId(), product);
+      }
+    }
+    return loaded;
+  }
+
+  private static boolean isCacheable(Product product) {
+    return product != null && !product.isFallback();
+  }
+
+  private class ProductLoader implements CacheLoader<Long, Product> {
+
+    @Override
+    public Product load(Long id) {
+      Product product = productLookupCollapser.getProductById(id);
+      return isCacheable(product) ? product : null;
+    }
+
+    @Override
+    public Product reload(Long id, Product oldValue) {
+      Product product = productLookupCollapser.getProductById(id);
+      if (!isCacheable(product)) {
+        // Failing the refresh keeps the current entry until its ttl runs out.
+        throw new IllegalStateException("product-service unavailable refreshing product " + id);
+      }
+      return product;
+    }
+  }
+}
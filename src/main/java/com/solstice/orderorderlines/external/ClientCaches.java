@@ -0,0 +1,24 @@
+package com.solstice.orderorderlines.external;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.solstice.orderorderlines.config.ClientCacheProperties.Spec;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+final class ClientCaches {
+
+  private ClientCaches() {
+  }
+
+  static Caffeine<Object, Object> newBuilder(Spec spec) {
+    Caffeine<Object, Object> builder = Caffeine.newBuilder()
+        .maximumSize(spec.getMaximumSize())
+        .expireAfterWrite(spec.getTtl().toMillis(), TimeUnit.MILLISECONDS)
+        .recordStats();
+    Duration refreshAfter = spec.getRefreshAfter();
+    if (refreshAfter != null && !refreshAfter.isZero() && refreshAfter.compareTo(spec.getTtl()) < 0) {
+      builder.refreshAfterWrite(refreshAfter.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    return builder;
+  }
+}
@@ -0,0 +1,196 @@
+package com.solstice.orderorderlines.external;
+
+import com.solstice.orderorderlines.config.HedgingProperties.Spec;
+import com.solstice.orderorderlines.model.Address;
+import com.solstice.orderorderlines.model.Product;
+import com.solstice.orderorderlines.model.Shipment;
+import io.micrometer.core.instrument.Counter;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hedging state of one client method: recent attempt latencies, from which the hedge delay is
+ * taken, and the client's hedge budget.
+ */
+final class Hedge {
+
+  private static final int WINDOW_SIZE = 1024;
+  private static final int MIN_SAMPLES = 100;
+  private static final long DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final double percentile;
+  private final long minDelayNanos;
+  private final HedgeBudget budget;
+  private final Counter fired;
+  private final Counter won;
+  private final Counter rejected;
+
+  private final AtomicLongArray latencies = new AtomicLongArray(WINDOW_SIZE);
+  private final AtomicInteger samples = new AtomicInteger();
+  private volatile long delayNanos;
+  private volatile long delayRefreshedAt;
+
+  Hedge(Spec spec, HedgeBudget budget, Counter fired, Counter won, Counter rejected) {
+    this.percentile = spec.getPercentile();
+    this.minDelayNanos = spec.getMinDelay().toNanos();
+    this.budget = budget;
+    this.fired = fired;
+    this.won = won;
+    this.rejected = rejected;
+    this.delayNanos = minDelayNanos;
+    this.delayRefreshedAt = System.nanoTime();
+  }
+
+  @FunctionalInterface
+  interface Attempt {
+    Object run() throws Throwable;
+  }
+
+  /**
+   * Runs the attempt on the executor and, if it has not answered within the hedge delay and the
+   * budget allows, a second one. The first successful attempt wins; the call only fails when
+   * every attempt it made failed. An attempt answered by the client's fallback counts as failed,
+   * and the fallback is only returned when no attempt got a real answer.
+   */
+  Object call(Attempt attempt, Executor executor) throws Throwable {
+    budget.recordCall();
+    CompletableFuture<Object> primary;
+    try {
+      primary = start(attempt, executor);
+    } catch (RejectedExecutionException e) {
+      return attempt.run();
+    }
+
+    try {
+      return primary.get(delayNanos(), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      // Slower than the hedge delay; fall through to the hedge.
+    } catch (ExecutionException e) {
+      throw e.getCause();
+    }
+
+    CompletableFuture<Object> secondary = null;
+    if (budget.tryAcquire()) {
+      try {
+        secondary = start(attempt, executor);
+        fired.increment();
+      } catch (RejectedExecutionException e) {
+        secondary = null;
+      }
+    }
+    if (secondary == null) {
+      rejected.increment();
+      return await(primary);
+    }
+
+    FirstAnswer first = new FirstAnswer();
+    primary.whenComplete(first::settle);
+    secondary.whenComplete((result, error) -> {
+      if (first.settle(result, error)) {
+        won.increment();
+      }
+    });
+    return await(first.answer);
+  }
+
+  private CompletableFuture<Object> start(Attempt attempt, Executor executor) {
+    return CompletableFuture.supplyAsync(() -> {
+      long start = System.nanoTime();
+      Object result;
+      try {
+        result = attempt.run();
+      } catch (Throwable e) {
+        throw e instanceof CompletionException ? (CompletionException) e
+            : new CompletionException(e);
+      }
+      // A fallback answers without reaching the service, so its latency says nothing about it.
+      if (!isFallback(result)) {
+        record(System.nanoTime() - start);
+      }
+      return result;
+    }, executor);
+  }
+
+  private static Object await(CompletableFuture<Object> future) throws Throwable {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      throw e.getCause();
+    }
+  }
+
+  private static boolean isFallback(Object result) {
+    if (result instanceof Collection) {
+      return ((Collection<?>) result).stream().anyMatch(Hedge::isFallback);
+    }
+    return result instanceof Product && ((Product) result).isFallback()
+        || result instanceof Address && ((Address) result).isFallback()
+        || result instanceof Shipment && ((Shipment) result).isFallback();
+  }
+
+  private void record(long elapsedNanos) {
+    latencies.set(Math.floorMod(samples.getAndIncrement(), WINDOW_SIZE), elapsedNanos);
+  }
+
+  long delayNanos() {
+    long now = System.nanoTime();
+    if (now - delayRefreshedAt < DELAY_REFRESH_NANOS) {
+      return delayNanos;
+    }
+    delayRefreshedAt = now;
+    int count = Math.min(samples.get(), WINDOW_SIZE);
+    if (count < MIN_SAMPLES) {
+      return delayNanos;
+    }
+    long[] window = new long[count];
+    for (int i = 0; i < count; i++) {
+      window[i] = latencies.get(i);
+    }
+    Arrays.sort(window);
+    int index = Math.min(count - 1, (int) Math.ceil(percentile * count) - 1);
+    delayNanos = Math.max(minDelayNanos, window[Math.max(0, index)]);
+    return delayNanos;
+  }
+
+  /**
+   * Outcome of a race between two attempts: the first real answer, or, once both attempts have
+   * failed, a fallback answer if either gave one and the last error otherwise.
+   */
+  private static final class FirstAnswer {
+
+    private final CompletableFuture<Object> answer = new CompletableFuture<>();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicReference<Object> fallback = new AtomicReference<>();
+
+    /**
+     * Returns whether this attempt won the race with a real answer.
+     */
+    boolean settle(Object result, Throwable error) {
+      if (error == null && !isFallback(result)) {
+        return answer.complete(result);
+      }
+      if (error == null) {
+        fallback.set(result);
+      }
+      if (failures.incrementAndGet() == 2) {
+        Object fallbackResult = fallback.get();
+        if (fallbackResult != null) {
+          answer.complete(fallbackResult);
+        } else {
+          answer.completeExceptionally(error);
+        }
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package com.solstice.orderorderlines.external;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket limiting hedges to a percentage of calls. Every call earns a fraction of a token,
+ * every hedge spends a whole one, and at most {@link #MAX_HEDGES} hedges can be saved up.
+ */
+final class HedgeBudget {
+
+  private static final long TOKEN = 1000;
+  private static final long MAX_HEDGES = 10;
+
+  private final long tokensPerCall;
+  private final AtomicLong tokens = new AtomicLong();
+
+  HedgeBudget(double budgetPercent) {
+    this.tokensPerCall = Math.round(budgetPercent * TOKEN / 100);
+  }
+
+  void recordCall() {
+    tokens.accumulateAndGet(tokensPerCall,
+        (current, earned) -> Math.min(current + earned, MAX_HEDGES * TOKEN));
+  }
+
+  boolean tryAcquire() {
+    long current;
+    do {
+      current = tokens.get();
+      if (current < TOKEN) {
+        return false;
+      }
+    } while (!tokens.compareAndSet(current, current - TOKEN));
+    return true;
+  }
+}
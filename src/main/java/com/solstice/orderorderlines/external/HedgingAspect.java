@@ -0,0 +1,91 @@
+package com.solstice.orderorderlines.external;
+
+import com.solstice.orderorderlines.config.HedgingProperties;
+import com.solstice.orderorderlines.config.HedgingProperties.Spec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hedges the calls of the Feign clients that have hedging enabled. Every client method is an
+ * idempotent GET, so a second attempt is safe; Ribbon's round robin sends it to the next
+ * instance. Ordered before the call metrics so each attempt is timed and counted on its own.
+ */
+@Aspect
+@Component
+@Order(0)
+public class HedgingAspect {
+
+  public static final String HEDGE_METRIC = "orders.client.hedges";
+
+  private final Executor hedgingExecutor;
+  private final MeterRegistry meterRegistry;
+  private final Map<Class<?>, Spec> specs = new HashMap<>();
+  private final Map<Class<?>, HedgeBudget> budgets = new HashMap<>();
+  private final Map<Method, Hedge> hedges = new ConcurrentHashMap<>();
+
+  public HedgingAspect(
+      @Qualifier("hedgingExecutor") Executor hedgingExecutor,
+      HedgingProperties hedgingProperties,
+      MeterRegistry meterRegistry) {
+    this.hedgingExecutor = hedgingExecutor;
+    this.meterRegistry = meterRegistry;
+    register(ProductClient.class, hedgingProperties.getProducts());
+    register(ShipmentClient.class, hedgingProperties.getShipments());
+    register(AccountAddressClient.class, hedgingProperties.getAddresses());
+  }
+
+  @Pointcut("(this(com.solstice.orderorderlines.external.AccountAddressClient) "
+      + "|| this(com.solstice.orderorderlines.external.ProductClient) "
+      + "|| this(com.solstice.orderorderlines.external.ShipmentClient)) "
+      + "&& !within(com.solstice.orderorderlines.external..*)")
+  void clientCall() {
+  }
+
+  @Around("clientCall()")
+  public Object hedge(ProceedingJoinPoint joinPoint) throws Throwable {
+    MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+    Class<?> client = signature.getDeclaringType();
+    Spec spec = specs.get(client);
+    if (spec == null || !spec.isEnabled()) {
+      return joinPoint.proceed();
+    }
+    Hedge hedge = hedges.computeIfAbsent(signature.getMethod(),
+        method -> newHedge(client, method, spec));
+    // Each attempt proceeds on its own copy of the invocation, so both can run at once.
+    Object[] args = joinPoint.getArgs();
+    return hedge.call(() -> joinPoint.proceed(args), hedgingExecutor);
+  }
+
+  private void register(Class<?> client, Spec spec) {
+    specs.put(client, spec);
+    budgets.put(client, new HedgeBudget(spec.getBudgetPercent()));
+  }
+
+  private Hedge newHedge(Class<?> client, Method method, Spec spec) {
+    return new Hedge(spec, budgets.get(client),
+        counter(client, method, "fired"),
+        counter(client, method, "won"),
+        counter(client, method, "rejected"));
+  }
+
+  private Counter counter(Class<?> client, Method method, String outcome) {
+    return Counter.builder(HEDGE_METRIC)
+        .tag("client", client.getSimpleName())
+        .tag("method", method.getName())
+        .tag("outcome", outcome)
+        .register(meterRegistry);
+  }
+}
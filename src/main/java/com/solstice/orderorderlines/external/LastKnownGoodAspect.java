@@ -0,0 +1,55 @@
+package com.solstice.orderorderlines.external;
+
+import com.solstice.orderorderlines.model.Address;
+import com.solstice.orderorderlines.model.Product;
+import com.solstice.orderorderlines.model.Shipment;
+import java.util.List;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Copies every successful response of the Feign proxies into the {@link LastKnownGoodStore}.
+ * Fallback results come back through the same proxies and are skipped by the store.
+ */
+@Aspect
+@Component
+class LastKnownGoodAspect {
+
+  private final LastKnownGoodStore lastKnownGoodStore;
+
+  LastKnownGoodAspect(LastKnownGoodStore lastKnownGoodStore) {
+    this.lastKnownGoodStore = lastKnownGoodStore;
+  }
+
+  @AfterReturning(pointcut = "this(com.solstice.orderorderlines.external.ProductClient) "
+      + "&& !within(com.solstice.orderorderlines.external..*)", returning = "result")
+  public void rememberProducts(Object result) {
+    if (result instanceof Product) {
+      lastKnownGoodStore.putProduct((Product) result);
+    } else if (result instanceof List) {
+      for (Object product : (List<?>) result) {
+        lastKnownGoodStore.putProduct((Product) product);
+      }
+    }
+  }
+
+  @AfterReturning(pointcut = "this(com.solstice.orderorderlines.external.ShipmentClient) "
+      + "&& !within(com.solstice.orderorderlines.external..*)", returning = "result")
+  public void rememberShipments(Object result) {
+    if (result instanceof Shipment) {
+      lastKnownGoodStore.putShipment((Shipment) result);
+    } else if (result instanceof List) {
+      for (Object shipment : (List<?>) result) {
+        lastKnownGoodStore.putShipment((Shipment) shipment);
+      }
+    }
+  }
+
+  @AfterReturning(pointcut = "this(com.solstice.orderorderlines.external.AccountAddressClient) "
+      + "&& !within(com.solstice.orderorderlines.external..*) && args(accountId, addressId)",
+      returning = "address", argNames = "accountId,addressId,address")
+  public void rememberAddress(long accountId, long addressId, Address address) {
+    lastKnownGoodStore.putAddress(accountId, addressId, address);
+  }
+}
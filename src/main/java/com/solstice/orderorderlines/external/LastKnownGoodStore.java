@@ -0,0 +1,97 @@
+package com.solstice.orderorderlines.external;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.solstice.orderorderlines.config.ClientCacheProperties;
+import com.solstice.orderorderlines.model.Address;
+import com.solstice.orderorderlines.model.Product;
+import com.solstice.orderorderlines.model.Shipment;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.concurrent.TimeUnit;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded store of the last successful downstream response per product, address and shipment.
+ * Entries go in and come out as copies flagged as fallbacks, so callers can tell them from live
+ * data and never mutate what is stored.
+ */
+@Component
+class LastKnownGoodStore {
+
+  private final Cache<Long, Product> products;
+  private final Cache<AddressKey, Address> addresses;
+  private final Cache<Long, Shipment> shipments;
+
+  LastKnownGoodStore(ClientCacheProperties clientCacheProperties, MeterRegistry meterRegistry) {
+    ClientCacheProperties.LastKnownGood spec = clientCacheProperties.getLastKnownGood();
+    this.products = newCache(spec);
+    this.addresses = newCache(spec);
+    this.shipments = newCache(spec);
+    CaffeineCacheMetrics.monitor(meterRegistry, products, "lastKnownGoodProducts");
+    CaffeineCacheMetrics.monitor(meterRegistry, addresses, "lastKnownGoodAddresses");
+    CaffeineCacheMetrics.monitor(meterRegistry, shipments, "lastKnownGoodShipments");
+  }
+
+  void putProduct(Product product) {
+    if (product != null && !product.isFallback()) {
+      products.put(product.getId(), copy(product, false));
+    }
+  }
+
+  Product getProduct(long id) {
+    Product product = products.getIfPresent(id);
+    return product == null ? null : copy(product, true);
+  }
+
+  void putAddress(long accountId, long addressId, Address address) {
+    if (address != null && !address.isFallback()) {
+      addresses.put(new AddressKey(accountId, addressId), copy(address, false));
+    }
+  }
+
+  Address getAddress(long accountId, long addressId) {
+    Address address = addresses.getIfPresent(new AddressKey(accountId, addressId));
+    return address == null ? null : copy(address, true);
+  }
+
+  void putShipment(Shipment shipment) {
+    if (shipment != null && !shipment.isFallback()) {
+      shipments.put(shipment.getId(), copy(shipment, false));
+    }
+  }
+
+  Shipment getShipment(long id) {
+    Shipment shipment = shipments.getIfPresent(id);
+    return shipment == null ? null : copy(shipment, true);
+  }
+
+  private static <K, V> Cache<K, V> newCache(ClientCacheProperties.LastKnownGood spec) {
+    return Caffeine.newBuilder()
+        .maximumSize(spec.getMaximumSize())
+        .expireAfterWrite(spec.getTtl().toMillis(), TimeUnit.MILLISECONDS)
+        .recordStats()
+        .build();
+  }
+
+  private static Product copy(Product product, boolean fallback) {
+    Product copy = new Product(product.getId(), product.getName(), product.getPrice());
+    copy.setFallback(fallback);
+    return copy;
+  }
+
+  private static Address copy(Address address, boolean fallback) {
+    Address copy = new Address(address.getStreet(), address.getApartment(), address.getCity(),
+        address.getState(), address.getZip(), address.getCountry());
+    copy.setId(address.getId());
+    copy.setFallback(fallback);
+    return copy;
+  }
+
+  private static Shipment copy(Shipment shipment, boolean fallback) {
+    Shipment copy = new Shipment(shipment.getId(), shipment.getAccountId(),
+        shipment.getShippingAddressId(), shipment.getShippedDate(), shipment.getDeliveryDate());
+    copy.setFallback(fallback);
+    return copy;
+  }
+}
@@ -1,22 +1,48 @@
 package com.solstice.orderorderlines.external;
 
 import com.solstice.orderorderlines.model.Product;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.stereotype.Component;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
-@FeignClient(value = "product-service", fallback = ProductClientFallback.class)
+@FeignClient(value = "product-service", qualifier = "productFeignClient", primary = false,
+    fallback = ProductClientFallback.class, configuration = ProductClientConfig.class)
 public interface ProductClient {
   @RequestMapping("/products/{id}")
   Product getProductById(@PathVariable("id") long id);
+
+  @RequestMapping("/products")
+  List<Product> getProductsByIds(@RequestParam("ids") Collection<Long> ids);
 }
 
 @Component
 class ProductClientFallback implements  ProductClient{
 
+  private final LastKnownGoodStore lastKnownGoodStore;
+
+  ProductClientFallback(LastKnownGoodStore lastKnownGoodStore) {
+    this.lastKnownGoodStore = lastKnownGoodStore;
+  }
+
   @Override
   public Product getProductById(long id) {
-    return new Product("",0.00);
+    Product product = lastKnownGoodStore.getProduct(id);
+    if (product == null) {
+      product = new Product(id, "", 0);
+      product.setFallback(true);
+    }
+    return product;
+  }
+
+  @Override
+  public List<Product> getProductsByIds(Collection<Long> ids) {
+    return ids.stream()
+        .map(this::getProductById)
+        .collect(Collectors.toList());
   }
 }
\ No newline at end of file
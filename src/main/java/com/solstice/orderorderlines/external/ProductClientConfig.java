@@ -0,0 +1,25 @@
+package com.solstice.orderorderlines.external;
+
+import com.netflix.hystrix.exception.HystrixBadRequestException;
+import feign.codec.ErrorDecoder;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Feign configuration of the product-service client only; not a @Configuration, so it does not
+ * apply to the other clients.
+ */
+class ProductClientConfig {
+
+  /**
+   * A 404 means product-service does not know the product. As a HystrixBadRequestException it
+   * reaches the caller as is, instead of counting against the circuit breaker and answering with
+   * a fallback product as if product-service were down.
+   */
+  @Bean
+  ErrorDecoder productErrorDecoder() {
+    ErrorDecoder defaultDecoder = new ErrorDecoder.Default();
+    return (methodKey, response) -> response.status() == 404
+        ? new HystrixBadRequestException("product-service has no such product: " + methodKey)
+        : defaultDecoder.decode(methodKey, response);
+  }
+}
@@ -0,0 +1,147 @@
+package com.solstice.orderorderlines.external;
+
+import com.netflix.hystrix.exception.HystrixBadRequestException;
+import com.solstice.orderorderlines.config.ClientCollapsingProperties;
+import com.solstice.orderorderlines.config.ClientCollapsingProperties.Spec;
+import com.solstice.orderorderlines.model.Product;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+/**
+ * Collapses single product lookups made at about the same time by different requests into one
+ * bulk call to product-service. The first lookup of a batch waits for the window, or until the
+ * batch is full, and then makes the call for everyone on its own thread; the others wait for
+ * their result. Ids asked for more than once in a batch are looked up once.
+ */
+@Component
+class ProductLookupCollapser {
+
+  static final String BATCH_SIZE_METRIC = "orders.client.collapsed.batch.size";
+
+  private final ProductClient productClient;
+  private final boolean enabled;
+  private final long windowNanos;
+  private final int maxBatchSize;
+  private final DistributionSummary batchSizes;
+
+  private Batch current;
+
+  ProductLookupCollapser(
+      @Qualifier("productFeignClient") ProductClient productClient,
+      ClientCollapsingProperties clientCollapsingProperties,
+      MeterRegistry meterRegistry) {
+    Spec spec = clientCollapsingProperties.getProducts();
+    this.productClient = productClient;
+    this.enabled = spec.isEnabled();
+    this.windowNanos = spec.getWindow().toNanos();
+    this.maxBatchSize = spec.getMaxBatchSize();
+    this.batchSizes = DistributionSummary.builder(BATCH_SIZE_METRIC)
+        .tag("client", ProductClient.class.getSimpleName())
+        .register(meterRegistry);
+  }
+
+  /**
+   * The product, a fallback product if product-service is unavailable, or null if it does not
+   * know the id.
+   */
+  Product getProductById(long id) {
+    if (!enabled) {
+      return getSingleProduct(id);
+    }
+
+    Batch batch;
+    CompletableFuture<Product> lookup;
+    boolean leader = false;
+    synchronized (this) {
+      if (current == null) {
+        current = new Batch();
+        leader = true;
+      }
+      batch = current;
+      lookup = batch.lookups.computeIfAbsent(id, key -> new CompletableFuture<>());
+      if (batch.lookups.size() >= maxBatchSize) {
+        current = null;
+        batch.full.countDown();
+      }
+    }
+
+    if (leader) {
+      awaitWindow(batch);
+      synchronized (this) {
+        if (current == batch) {
+          current = null;
+        }
+      }
+      execute(batch);
+    }
+
+    try {
+      return lookup.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted waiting for product " + id, e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private void awaitWindow(Batch batch) {
+    try {
+      batch.full.await(windowNanos, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      // The other callers depend on this thread; send the batch now and keep the interrupt.
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Runs once the batch is closed, so its lookups are no longer modified.
+   */
+  private void execute(Batch batch) {
+    Map<Long, CompletableFuture<Product>> lookups = batch.lookups;
+    batchSizes.record(lookups.size());
+    try {
+      Map<Long, Product> found = new HashMap<>();
+      if (lookups.size() == 1) {
+        Long id = lookups.keySet().iterator().next();
+        found.put(id, getSingleProduct(id));
+      } else {
+        List<Product> products = productClient.getProductsByIds(new ArrayList<>(lookups.keySet()));
+        if (products != null) {
+          products.forEach(product -> found.putIfAbsent(product.getId(), product));
+        }
+      }
+      lookups.forEach((id, lookup) -> lookup.complete(found.get(id)));
+    } catch (RuntimeException e) {
+      lookups.values().forEach(lookup -> lookup.completeExceptionally(e));
+    }
+  }
+
+  private Product getSingleProduct(long id) {
+    try {
+      return productClient.getProductById(id);
+    } catch (HystrixBadRequestException e) {
+      // product-service answered 404.
+      return null;
+    }
+  }
+
+  private static final class Batch {
+    final Map<Long, CompletableFuture<Product>> lookups = new LinkedHashMap<>();
+    final CountDownLatch full = new CountDownLatch(1);
+  }
+}
@@ -1,21 +1,48 @@
 package com.solstice.orderorderlines.external;
 
 import com.solstice.orderorderlines.model.Shipment;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.stereotype.Component;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
-@FeignClient(value = "shipment-service")
+@FeignClient(value = "shipment-service", fallback = ShipmentClientFallback.class)
 public interface ShipmentClient {
   @RequestMapping("/shipments/{id}")
   Shipment getShipmentById(@PathVariable("id") long id);
+
+  @RequestMapping("/shipments")
+  List<Shipment> getShipmentsByIds(@RequestParam("ids") Collection<Long> ids);
 }
 
+@Component
+class ShipmentClientFallback implements ShipmentClient {
+
+  private final LastKnownGoodStore lastKnownGoodStore;
+
+  ShipmentClientFallback(LastKnownGoodStore lastKnownGoodStore) {
+    this.lastKnownGoodStore = lastKnownGoodStore;
+  }
 
-//class ShipmentClientFallback implements ShipmentClient{
-//  @Override
-//  public Shipment getShipmentById(long id) {
-//    return new Shipment();
-//  }
-//}
+  @Override
+  public Shipment getShipmentById(long id) {
+    Shipment shipment = lastKnownGoodStore.getShipment(id);
+    if (shipment == null) {
+      shipment = new Shipment();
+      shipment.setId(id);
+      shipment.setFallback(true);
+    }
+    return shipment;
+  }
+
+  @Override
+  public List<Shipment> getShipmentsByIds(Collection<Long> ids) {
+    return ids.stream()
+        .map(this::getShipmentById)
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,101 @@
+package com.solstice.orderorderlines.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Times every repository method, downstream client call and client fallback. The client pointcut
+ * only matches the Feign proxies; the caching decorators and fallbacks in the external package
+ * are not downstream calls.
+ */
+@Aspect
+@Component
+public class CallMetricsAspect {
+
+  public static final String REPOSITORY_METRIC = "orders.repository.calls";
+  public static final String CLIENT_METRIC = "orders.client.calls";
+  public static final String FALLBACK_METRIC = "orders.client.fallbacks";
+
+  private static final String BASE_PACKAGE = "com.solstice.orderorderlines";
+
+  private final MeterRegistry meterRegistry;
+  private final Map<Class<?>, String> typeNames = new ConcurrentHashMap<>();
+
+  public CallMetricsAspect(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Pointcut("this(com.solstice.orderorderlines.dao.OrderRepository) "
+      + "|| this(com.solstice.orderorderlines.dao.OrderLineItemRepository) "
+      + "|| this(com.solstice.orderorderlines.dao.OrderDetailSnapshotRepository)")
+  void repositoryMethod() {
+  }
+
+  @Pointcut("(this(com.solstice.orderorderlines.external.AccountAddressClient) "
+      + "|| this(com.solstice.orderorderlines.external.ProductClient) "
+      + "|| this(com.solstice.orderorderlines.external.ShipmentClient)) "
+      + "&& !within(com.solstice.orderorderlines.external..*)")
+  void clientCall() {
+  }
+
+  @Pointcut("within(com.solstice.orderorderlines.external.*Fallback)")
+  void fallbackCall() {
+  }
+
+  @Around("repositoryMethod()")
+  public Object timeRepositoryMethod(ProceedingJoinPoint joinPoint) throws Throwable {
+    return time(REPOSITORY_METRIC, "repository", joinPoint);
+  }
+
+  @Around("clientCall()")
+  public Object timeClientCall(ProceedingJoinPoint joinPoint) throws Throwable {
+    DownstreamCallCounter.increment();
+    return time(CLIENT_METRIC, "client", joinPoint);
+  }
+
+  @Around("fallbackCall()")
+  public Object timeFallbackCall(ProceedingJoinPoint joinPoint) throws Throwable {
+    return time(FALLBACK_METRIC, "client", joinPoint);
+  }
+
+  private Object time(String metric, String typeTag, ProceedingJoinPoint joinPoint)
+      throws Throwable {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    String outcome = "success";
+    try {
+      return joinPoint.proceed();
+    } catch (Throwable e) {
+      outcome = e.getClass().getSimpleName();
+      throw e;
+    } finally {
+      sample.stop(Timer.builder(metric)
+          .tag(typeTag, typeName(joinPoint.getThis()))
+          .tag("method", joinPoint.getSignature().getName())
+          .tag("outcome", outcome)
+          .register(meterRegistry));
+    }
+  }
+
+  /**
+   * Repository and Feign beans are proxies, so they are named after the first interface of ours
+   * that they implement rather than after their generated class.
+   */
+  private String typeName(Object proxy) {
+    return typeNames.computeIfAbsent(proxy.getClass(), proxyClass -> {
+      for (Class<?> type : ClassUtils.getAllInterfacesForClassAsSet(proxyClass)) {
+        if (type.getName().startsWith(BASE_PACKAGE)) {
+          return type.getSimpleName();
+        }
+      }
+      return ClassUtils.getUserClass(proxyClass).getSimpleName();
+    });
+  }
+}
@@ -0,0 +1,53 @@
+package com.solstice.orderorderlines.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * Counts the downstream service calls made on behalf of the current request. The count is bound
+ * to the request thread and carried over to executor threads by {@link #taskDecorator()}.
+ */
+public final class DownstreamCallCounter {
+
+  private static final ThreadLocal<AtomicInteger> CURRENT = new ThreadLocal<>();
+
+  private DownstreamCallCounter() {
+  }
+
+  static void begin() {
+    CURRENT.set(new AtomicInteger());
+  }
+
+  static int end() {
+    AtomicInteger count = CURRENT.get();
+    CURRENT.remove();
+    return count == null ? 0 : count.get();
+  }
+
+  static void increment() {
+    AtomicInteger count = CURRENT.get();
+    if (count != null) {
+      count.incrementAndGet();
+    }
+  }
+
+  public static TaskDecorator taskDecorator() {
+    return runnable -> {
+      AtomicInteger count = CURRENT.get();
+      return () -> {
+        // The task may run on a thread that is counting a request of its own.
+        AtomicInteger previous = CURRENT.get();
+        CURRENT.set(count);
+        try {
+          runnable.run();
+        } finally {
+          if (previous == null) {
+            CURRENT.remove();
+          } else {
+            CURRENT.set(previous);
+          }
+        }
+      };
+    };
+  }
+}
@@ -0,0 +1,41 @@
+package com.solstice.orderorderlines.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+/**
+ * Records how many downstream calls each request made, tagged like http.server.requests.
+ */
+public class DownstreamCallsInterceptor extends HandlerInterceptorAdapter {
+
+  public static final String METRIC_NAME = "orders.request.downstream.calls";
+
+  private final MeterRegistry meterRegistry;
+
+  public DownstreamCallsInterceptor(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+      Object handler) {
+    DownstreamCallCounter.begin();
+    return true;
+  }
+
+  @Override
+  public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+      Object handler, Exception ex) {
+    int calls = DownstreamCallCounter.end();
+    Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    DistributionSummary.builder(METRIC_NAME)
+        .tag("method", request.getMethod())
+        .tag("uri", uri == null ? "UNKNOWN" : uri.toString())
+        .register(meterRegistry)
+        .record(calls);
+  }
+}
@@ -0,0 +1,82 @@
+package com.solstice.orderorderlines.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+
+/**
+ * Connection pool of the Feign clients that reports its occupancy and how long calls wait to
+ * lease a connection. Lease waits are capped at the max lease wait, whatever timeout the request
+ * config carries, so a saturated pool fails calls instead of queueing them without limit.
+ */
+public class InstrumentedConnectionManager extends PoolingHttpClientConnectionManager {
+
+  public static final String POOL_METRIC = "orders.client.pool";
+
+  private final Timer leaseWait;
+  private volatile long maxLeaseWaitMillis;
+
+  public InstrumentedConnectionManager(long timeToLiveMillis, MeterRegistry meterRegistry) {
+    super(timeToLiveMillis, TimeUnit.MILLISECONDS);
+    gauge(meterRegistry, POOL_METRIC + ".connections", "leased", PoolStats::getLeased);
+    gauge(meterRegistry, POOL_METRIC + ".connections", "available", PoolStats::getAvailable);
+    gauge(meterRegistry, POOL_METRIC + ".pending", null, PoolStats::getPending);
+    gauge(meterRegistry, POOL_METRIC + ".max", null, PoolStats::getMax);
+    this.leaseWait = Timer.builder(POOL_METRIC + ".lease.wait")
+        .description("Time calls waited for a pooled connection")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Longest a call waits for a connection; 0 leaves the wait to the request config.
+   */
+  public void setMaxLeaseWait(long maxLeaseWaitMillis) {
+    this.maxLeaseWaitMillis = maxLeaseWaitMillis;
+  }
+
+  @Override
+  public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+    ConnectionRequest request = super.requestConnection(route, state);
+    return new ConnectionRequest() {
+      @Override
+      public HttpClientConnection get(long timeout, TimeUnit timeUnit)
+          throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+        long start = System.nanoTime();
+        try {
+          long maxWait = maxLeaseWaitMillis;
+          // A timeout of 0 or less waits forever.
+          if (maxWait > 0 && (timeout <= 0 || timeUnit.toMillis(timeout) > maxWait)) {
+            return request.get(maxWait, TimeUnit.MILLISECONDS);
+          }
+          return request.get(timeout, timeUnit);
+        } finally {
+          leaseWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+      }
+
+      @Override
+      public boolean cancel() {
+        return request.cancel();
+      }
+    };
+  }
+
+  private void gauge(MeterRegistry meterRegistry, String name, String state,
+      ToDoubleFunction<PoolStats> value) {
+    Gauge.Builder<InstrumentedConnectionManager> builder = Gauge
+        .builder(name, this, connectionManager -> value.applyAsDouble(connectionManager.getTotalStats()));
+    if (state != null) {
+      builder.tag("state", state);
+    }
+    builder.register(meterRegistry);
+  }
+}
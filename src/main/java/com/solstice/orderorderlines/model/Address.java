@@ -1,5 +1,7 @@
 package com.solstice.orderorderlines.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public class Address {
   private long id;
   private String street;
@@ -8,6 +10,8 @@ public class Address {
   private String state;
   private String zip;
   private String country;
+  @JsonIgnore
+  private boolean fallback;
 
   public Address(){
 
@@ -79,6 +83,14 @@ public class Address {
     this.country = country;
   }
 
+  public boolean isFallback() {
+    return fallback;
+  }
+
+  public void setFallback(boolean fallback) {
+    this.fallback = fallback;
+  }
+
   @Override
   public String toString() {
     return "Address{" +
@@ -0,0 +1,18 @@
+package com.solstice.orderorderlines.model;
+
+/**
+ * Hibernate second-level cache regions. Each one is created, bounded and monitored by
+ * EntityCacheConfig.
+ */
+public final class CacheRegions {
+
+  public static final String ORDERS = "orders";
+  /**
+   * Line item ids of each order; the line items themselves live in {@link #ORDER_LINE_ITEMS}.
+   */
+  public static final String ORDER_LINE_ITEM_IDS = "orderLineItemIds";
+  public static final String ORDER_LINE_ITEMS = "orderLineItems";
+
+  private CacheRegions() {
+  }
+}
@@ -0,0 +1,32 @@
+package com.solstice.orderorderlines.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Amounts are held as a {@code long} count of minor units (cents), so they add and multiply
+ * exactly. Decimal values only appear at the JSON boundary.
+ */
+public final class Money {
+
+  public static final int SCALE = 2;
+
+  private Money() {
+  }
+
+  public static long fromDecimal(BigDecimal amount) {
+    return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+  }
+
+  public static BigDecimal toDecimal(long minorUnits) {
+    return BigDecimal.valueOf(minorUnits, SCALE);
+  }
+
+  public static long add(long augend, long addend) {
+    return Math.addExact(augend, addend);
+  }
+
+  public static long multiply(long minorUnits, int quantity) {
+    return Math.multiplyExact(minorUnits, quantity);
+  }
+}
@@ -0,0 +1,37 @@
+package com.solstice.orderorderlines.model;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Reads a decimal amount, as a JSON number or string, into minor units, e.g. 2.50 as 250. The
+ * number is read from its text, never through a double.
+ */
+public class MoneyDeserializer extends StdDeserializer<Long> {
+  private static final long serialVersionUID = 1L;
+
+  public MoneyDeserializer() {
+    super(Long.class);
+  }
+
+  @Override
+  public Long deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+    JsonToken token = parser.getCurrentToken();
+    try {
+      if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+        return Money.fromDecimal(parser.getDecimalValue());
+      }
+      if (token == JsonToken.VALUE_STRING) {
+        return Money.fromDecimal(new BigDecimal(parser.getText().trim()));
+      }
+    } catch (NumberFormatException | ArithmeticException e) {
+      return (Long) context.handleWeirdStringValue(Long.class, parser.getText(),
+          "not a valid amount");
+    }
+    return (Long) context.handleUnexpectedToken(Long.class, parser);
+  }
+}
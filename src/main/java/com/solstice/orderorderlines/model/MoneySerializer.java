@@ -0,0 +1,23 @@
+package com.solstice.orderorderlines.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+
+/**
+ * Writes a minor-units amount as a decimal number, e.g. 250 as 2.50.
+ */
+public class MoneySerializer extends StdSerializer<Long> {
+  private static final long serialVersionUID = 1L;
+
+  public MoneySerializer() {
+    super(Long.class);
+  }
+
+  @Override
+  public void serialize(Long value, JsonGenerator generator, SerializerProvider provider)
+      throws IOException {
+    generator.writeNumber(Money.toDecimal(value));
+  }
+}
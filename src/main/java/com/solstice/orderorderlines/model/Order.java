@@ -1,5 +1,6 @@
 package com.solstice.orderorderlines.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
@@ -15,29 +16,42 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.OneToMany;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
-import javax.persistence.Transient;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name="orders")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.ORDERS)
 public class Order {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_seq")
+  @SequenceGenerator(name = "order_seq", sequenceName = "order_seq", allocationSize = 50)
   private long orderNumber;
   private long accountId;
   @JsonDeserialize(using = LocalDateTimeDeserializer.class)
   @JsonSerialize(using = LocalDateTimeSerializer.class)
+  @Column(nullable = false)
   private LocalDateTime orderDate;
   private long shippingAddressId;
   @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
-  @JoinColumn(name = "orderId")
+  @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.ORDER_LINE_ITEM_IDS)
+  // Not nullable and not updatable: the order id goes into each line's insert, instead of an
+  // insert with a null order id followed by an update per line.
+  @JoinColumn(name = "orderId", nullable = false, updatable = false)
   @JsonIgnoreProperties("orderId")
   private List<OrderLineItem> orderLineItems;
-  @Transient
-  private double totalPrice;
+  @JsonSerialize(using = MoneySerializer.class)
+  private long totalPrice;
+  /**
+   * Bumped by every write to the order or its line items, through {@link #incrementRevision()}.
+   */
+  @JsonIgnore
+  private long revision;
 
   public Order(){}
 
@@ -101,16 +115,43 @@ public class Order {
     setTotalPrice();
   }
 
-  public double getTotalPrice() {
+  public void removeOrderLineItem(long orderLineItemId) {
+    orderLineItems.removeIf(orderLineItem -> orderLineItem.getId() == orderLineItemId);
     setTotalPrice();
+  }
+
+  public long getTotalPrice() {
     return totalPrice;
   }
 
+  /**
+   * Recomputes the stored total from the line items. Callers that reprice lines in place must
+   * call this before the order is saved.
+   */
   public void setTotalPrice() {
-    totalPrice = 0;
+    long total = 0;
     if (orderLineItems != null) {
-      this.orderLineItems.forEach(o -> totalPrice += o.getTotalPrice());
+      for (int i = 0, size = orderLineItems.size(); i < size; i++) {
+        total = Money.add(total, orderLineItems.get(i).getTotalPrice());
+      }
     }
+    totalPrice = total;
+  }
+
+  public long getRevision() {
+    return revision;
+  }
+
+  public void setRevision(long revision) {
+    this.revision = revision;
+  }
+
+  /**
+   * Marks a write to the order or its line items. The writer must hold the order's row lock, or
+   * concurrent writes could both store the same revision.
+   */
+  public void incrementRevision() {
+    revision++;
   }
 
   @Override
@@ -0,0 +1,78 @@
+package com.solstice.orderorderlines.model;
+
+public class OrderBatchResult {
+
+  public enum Status {
+    CREATED, REJECTED, FAILED
+  }
+
+  private int index;
+  private Status status;
+  private Order order;
+  private String message;
+
+  public OrderBatchResult() {
+
+  }
+
+  public OrderBatchResult(int index, Status status, Order order, String message) {
+    this.index = index;
+    this.status = status;
+    this.order = order;
+    this.message = message;
+  }
+
+  public static OrderBatchResult created(int index, Order order) {
+    return new OrderBatchResult(index, Status.CREATED, order, null);
+  }
+
+  public static OrderBatchResult rejected(int index, String message) {
+    return new OrderBatchResult(index, Status.REJECTED, null, message);
+  }
+
+  public static OrderBatchResult failed(int index, String message) {
+    return new OrderBatchResult(index, Status.FAILED, null, message);
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public void setIndex(int index) {
+    this.index = index;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public void setStatus(Status status) {
+    this.status = status;
+  }
+
+  public Order getOrder() {
+    return order;
+  }
+
+  public void setOrder(Order order) {
+    this.order = order;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public void setMessage(String message) {
+    this.message = message;
+  }
+
+  @Override
+  public String toString() {
+    return "OrderBatchResult{" +
+        "index=" + index +
+        ", status=" + status +
+        ", order=" + order +
+        ", message='" + message + '\'' +
+        '}';
+  }
+}
@@ -1,19 +1,42 @@
 package com.solstice.orderorderlines.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 public class OrderDetail {
+  public static final String SHIPPING_ADDRESS = "shippingAddress";
+  public static final String ORDER_LINE_ITEMS = "orderLineItems";
+  public static final String SHIPMENTS = "shipments";
+
   private long orderNumber;
   private Address shippingAddress;
-  private double totalPrice;
+  @JsonSerialize(using = MoneySerializer.class)
+  @JsonDeserialize(using = MoneyDeserializer.class)
+  private long totalPrice;
   private List<OrderLineSummary> orderLineItems;
   private List<Shipment> shipments;
+  @JsonDeserialize(using = LocalDateTimeDeserializer.class)
+  @JsonSerialize(using = LocalDateTimeSerializer.class)
+  private LocalDateTime refreshedAt;
+  /**
+   * Fields built from last-known-good or placeholder data because their downstream service was
+   * unavailable, or not looked up yet.
+   */
+  @JsonInclude(Include.NON_EMPTY)
+  private List<String> staleFields = new ArrayList<>();
 
   public OrderDetail() {
 
   }
 
-  public OrderDetail(long orderNumber, Address shippingAddress, double totalPrice,
+  public OrderDetail(long orderNumber, Address shippingAddress, long totalPrice,
       List<OrderLineSummary> orderLineItems, List<Shipment> shipments) {
     this.orderNumber = orderNumber;
     this.shippingAddress = shippingAddress;
@@ -38,11 +61,11 @@ public class OrderDetail {
     this.shippingAddress = shippingAddress;
   }
 
-  public double getTotalPrice() {
+  public long getTotalPrice() {
     return totalPrice;
   }
 
-  public void setTotalPrice(double totalPrice) {
+  public void setTotalPrice(long totalPrice) {
     this.totalPrice = totalPrice;
   }
 
@@ -61,4 +84,20 @@ public class OrderDetail {
   public void setShipments(List<Shipment> shipments) {
     this.shipments = shipments;
   }
+
+  public LocalDateTime getRefreshedAt() {
+    return refreshedAt;
+  }
+
+  public void setRefreshedAt(LocalDateTime refreshedAt) {
+    this.refreshedAt = refreshedAt;
+  }
+
+  public List<String> getStaleFields() {
+    return staleFields;
+  }
+
+  public void setStaleFields(List<String> staleFields) {
+    this.staleFields = staleFields;
+  }
 }
@@ -0,0 +1,34 @@
+package com.solstice.orderorderlines.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * Stores an {@link OrderDetail} as the same JSON the API returns for it.
+ */
+@Converter
+public class OrderDetailJsonConverter implements AttributeConverter<OrderDetail, String> {
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  @Override
+  public String convertToDatabaseColumn(OrderDetail orderDetail) {
+    try {
+      return orderDetail == null ? null : OBJECT_MAPPER.writeValueAsString(orderDetail);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public OrderDetail convertToEntityAttribute(String json) {
+    try {
+      return json == null ? null : OBJECT_MAPPER.readValue(json, OrderDetail.class);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package com.solstice.orderorderlines.model;
+
+import java.time.LocalDateTime;
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/**
+ * Denormalized copy of an order's {@link OrderDetail}, kept so GET /orders/{accountId} can be
+ * answered without calling the downstream services.
+ */
+@Entity
+@Table(name = "order_detail_snapshot", indexes = {
+    @Index(name = "idx_order_detail_snapshot_account",
+        columnList = "accountId, orderDate, orderNumber"),
+    @Index(name = "idx_order_detail_snapshot_refreshed", columnList = "refreshedAt")
+})
+public class OrderDetailSnapshot {
+
+  @Id
+  private long orderNumber;
+  private long accountId;
+  private LocalDateTime orderDate;
+  private LocalDateTime refreshedAt;
+  /**
+   * Revision of the order the detail was built from.
+   */
+  private long revision;
+  /**
+   * Bumped every time the snapshot is saved or backdated. Not a JPA version: rebuilds save fresh
+   * instances over the stored row, so OrderDetailSnapshotRepository bumps it.
+   */
+  private long version;
+  @Column(nullable = false, length = 1_000_000)
+  @Convert(converter = OrderDetailJsonConverter.class)
+  private OrderDetail detail;
+
+  public OrderDetailSnapshot() {
+  }
+
+  public OrderDetailSnapshot(Order order, OrderDetail detail, LocalDateTime refreshedAt) {
+    this.orderNumber = order.getOrderNumber();
+    this.accountId = order.getAccountId();
+    this.orderDate = order.getOrderDate();
+    this.revision = order.getRevision();
+    this.detail = detail;
+    this.refreshedAt = refreshedAt;
+  }
+
+  public long getOrderNumber() {
+    return orderNumber;
+  }
+
+  public void setOrderNumber(long orderNumber) {
+    this.orderNumber = orderNumber;
+  }
+
+  public long getAccountId() {
+    return accountId;
+  }
+
+  public void setAccountId(long accountId) {
+    this.accountId = accountId;
+  }
+
+  public LocalDateTime getOrderDate() {
+    return orderDate;
+  }
+
+  public void setOrderDate(LocalDateTime orderDate) {
+    this.orderDate = orderDate;
+  }
+
+  public LocalDateTime getRefreshedAt() {
+    return refreshedAt;
+  }
+
+  public void setRefreshedAt(LocalDateTime refreshedAt) {
+    this.refreshedAt = refreshedAt;
+  }
+
+  public long getRevision() {
+    return revision;
+  }
+
+  public void setRevision(long revision) {
+    this.revision = revision;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public void setVersion(long version) {
+    this.version = version;
+  }
+
+  /**
+   * The stored detail, stamped with the time it was built.
+   */
+  public OrderDetail getDetail() {
+    if (detail != null) {
+      detail.setRefreshedAt(refreshedAt);
+    }
+    return detail;
+  }
+
+  public void setDetail(OrderDetail detail) {
+    this.detail = detail;
+  }
+}
@@ -1,5 +1,7 @@
 package com.solstice.orderorderlines.model;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import javax.persistence.ColumnResult;
 import javax.persistence.ConstructorResult;
 import javax.persistence.Entity;
@@ -7,16 +9,19 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.NamedNativeQuery;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.SqlResultSetMapping;
-import javax.persistence.Transient;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.ORDER_LINE_ITEMS)
 @SqlResultSetMapping(name="OrderLineItemFromOrderMapping", classes = {
     @ConstructorResult(targetClass = OrderLineItem.class,
         columns = {
             @ColumnResult(name="product_id", type=Long.class),
             @ColumnResult(name="quantity", type=Integer.class),
-            @ColumnResult(name="price", type=Double.class),
+            @ColumnResult(name="price", type=Long.class),
             @ColumnResult(name="shipment_id", type=Long.class),
         })
 })
@@ -30,19 +35,23 @@ import javax.persistence.Transient;
 public class OrderLineItem {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_line_item_seq")
+  @SequenceGenerator(name = "order_line_item_seq", sequenceName = "order_line_item_seq",
+      allocationSize = 50)
   private long id;
   private long productId;
   private int quantity;
-  private double price;
-  @Transient
-  private double totalPrice;
+  @JsonSerialize(using = MoneySerializer.class)
+  @JsonDeserialize(using = MoneyDeserializer.class)
+  private long price;
+  @JsonSerialize(using = MoneySerializer.class)
+  private long totalPrice;
   private long shipmentId;
 
   public OrderLineItem() {
   }
 
-  public OrderLineItem(long productId, int quantity, double price,
+  public OrderLineItem(long productId, int quantity, long price,
       long shipmentId) {
     this.productId = productId;
     this.quantity = quantity;
@@ -82,17 +91,16 @@ public class OrderLineItem {
     setTotalPrice();
   }
 
-  public double getPrice() {
+  public long getPrice() {
     return price;
   }
 
-  public void setPrice(double price) {
+  public void setPrice(long price) {
     this.price = price;
     setTotalPrice();
   }
 
-  public double getTotalPrice() {
-    setTotalPrice();
+  public long getTotalPrice() {
     return totalPrice;
   }
 
@@ -105,7 +113,7 @@ public class OrderLineItem {
   }
 
   public void setTotalPrice() {
-    totalPrice = price * quantity;
+    totalPrice = Money.multiply(price, quantity);
   }
 
   @Override
@@ -0,0 +1,33 @@
+package com.solstice.orderorderlines.model;
+
+import java.util.List;
+
+public class OrderPage {
+  private List<Order> orders;
+  private String nextCursor;
+
+  public OrderPage() {
+
+  }
+
+  public OrderPage(List<Order> orders, String nextCursor) {
+    this.orders = orders;
+    this.nextCursor = nextCursor;
+  }
+
+  public List<Order> getOrders() {
+    return orders;
+  }
+
+  public void setOrders(List<Order> orders) {
+    this.orders = orders;
+  }
+
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  public void setNextCursor(String nextCursor) {
+    this.nextCursor = nextCursor;
+  }
+}
@@ -1,14 +1,21 @@
 package com.solstice.orderorderlines.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonProperty.Access;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
-@JsonIgnoreProperties({"id","description","image"})
+@JsonIgnoreProperties({"description","image"})
 public class Product {
+  @JsonProperty(access = Access.WRITE_ONLY)
+  private long id;
   private String name;
   @JsonProperty(access = Access.WRITE_ONLY)
-  private double price;
+  @JsonDeserialize(using = MoneyDeserializer.class)
+  private long price;
+  @JsonIgnore
+  private boolean fallback;
 
 
   public Product() {
@@ -19,11 +26,25 @@ public class Product {
 //    this.name = name;
 //  }
 
-  public Product(String name, double price) {
+  public Product(String name, long price) {
     this.name = name;
     this.price = price;
   }
 
+  public Product(long id, String name, long price) {
+    this.id = id;
+    this.name = name;
+    this.price = price;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public void setId(long id) {
+    this.id = id;
+  }
+
   public String getName() {
     return name;
   }
@@ -32,11 +53,19 @@ public class Product {
     this.name = name;
   }
 
-  public double getPrice() {
+  public long getPrice() {
     return price;
   }
 
-  public void setPrice(double price) {
+  public void setPrice(long price) {
     this.price = price;
   }
+
+  public boolean isFallback() {
+    return fallback;
+  }
+
+  public void setFallback(boolean fallback) {
+    this.fallback = fallback;
+  }
 }
@@ -0,0 +1,50 @@
+package com.solstice.orderorderlines.model;
+
+import java.time.LocalDateTime;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Lease on a scheduled job shared by every instance of the service, so a job that must not run
+ * twice at once runs on one instance at a time. The lease runs out by itself if its holder dies.
+ */
+@Entity
+@Table(name = "scheduler_lock")
+public class SchedulerLock {
+
+  @Id
+  private String name;
+  @Column(nullable = false)
+  private LocalDateTime lockedUntil;
+  @Column(nullable = false)
+  private String lockedBy;
+
+  public SchedulerLock() {
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public LocalDateTime getLockedUntil() {
+    return lockedUntil;
+  }
+
+  public void setLockedUntil(LocalDateTime lockedUntil) {
+    this.lockedUntil = lockedUntil;
+  }
+
+  public String getLockedBy() {
+    return lockedBy;
+  }
+
+  public void setLockedBy(String lockedBy) {
+    this.lockedBy = lockedBy;
+  }
+}
@@ -1,5 +1,6 @@
 package com.solstice.orderorderlines.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonProperty.Access;
@@ -26,6 +27,8 @@ public class Shipment {
   @JsonDeserialize(using = LocalDateTimeDeserializer.class)
   @JsonSerialize(using = LocalDateTimeSerializer.class)
   private LocalDateTime deliveryDate;
+  @JsonIgnore
+  private boolean fallback;
 
   public Shipment() {
   }
@@ -99,6 +102,14 @@ public class Shipment {
     this.orderLineItems = orderLineItems;
   }
 
+  public boolean isFallback() {
+    return fallback;
+  }
+
+  public void setFallback(boolean fallback) {
+    this.fallback = fallback;
+  }
+
   public void addOrderLineItem(OrderLineSummary orderLineSummary) {
     orderLineItems.add(orderLineSummary);
   }
@@ -0,0 +1,62 @@
+package com.solstice.orderorderlines.service;
+
+import com.solstice.orderorderlines.exception.HTTP400Exception;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque keyset position in an order listing: the orderNumber of the last order returned, plus
+ * its orderDate when the listing is ordered by date.
+ */
+final class OrderCursor {
+
+  private static final char SEPARATOR = '|';
+
+  private final LocalDateTime orderDate;
+  private final long orderNumber;
+
+  private OrderCursor(LocalDateTime orderDate, long orderNumber) {
+    this.orderDate = orderDate;
+    this.orderNumber = orderNumber;
+  }
+
+  static OrderCursor of(long orderNumber) {
+    return new OrderCursor(null, orderNumber);
+  }
+
+  static OrderCursor of(LocalDateTime orderDate, long orderNumber) {
+    return new OrderCursor(orderDate, orderNumber);
+  }
+
+  static OrderCursor decode(String cursor) {
+    try {
+      String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      int separator = value.indexOf(SEPARATOR);
+      if (separator < 0) {
+        return of(Long.parseLong(value));
+      }
+      return of(LocalDateTime.parse(value.substring(0, separator)),
+          Long.parseLong(value.substring(separator + 1)));
+    } catch (IllegalArgumentException | DateTimeParseException e) {
+      throw new HTTP400Exception("Invalid cursor: " + cursor, e);
+    }
+  }
+
+  String encode() {
+    String value = orderDate == null
+        ? Long.toString(orderNumber)
+        : orderDate.toString() + SEPARATOR + orderNumber;
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  LocalDateTime getOrderDate() {
+    return orderDate;
+  }
+
+  long getOrderNumber() {
+    return orderNumber;
+  }
+}
@@ -0,0 +1,260 @@
+package com.solstice.orderorderlines.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.solstice.orderorderlines.config.OrderServiceProperties;
+import com.solstice.orderorderlines.dao.OrderDetailSnapshotRepository;
+import com.solstice.orderorderlines.dao.OrderDetailSnapshotStamp;
+import com.solstice.orderorderlines.dao.OrderNumbersStamp;
+import com.solstice.orderorderlines.dao.OrderRepository;
+import com.solstice.orderorderlines.dao.ReplicaRoutingDataSource;
+import com.solstice.orderorderlines.model.Order;
+import com.solstice.orderorderlines.model.OrderDetail;
+import com.solstice.orderorderlines.model.OrderDetailSnapshot;
+import com.solstice.orderorderlines.model.OrderLineSummary;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Serves order details from their stored snapshots. Snapshots are rebuilt whenever an order
+ * changes and, for changes in the downstream services, by {@link OrderDetailRefresher}.
+ */
+@Service
+public class OrderDetailReadModel {
+
+  private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+  private OrderDetailSnapshotRepository orderDetailSnapshotRepository;
+  private OrderRepository orderRepository;
+  private OrderOrderLineService orderOrderLineService;
+  private OrderServiceProperties orderServiceProperties;
+  private Executor orderDetailsRebuildExecutor;
+  /**
+   * Orders whose missing snapshot a request already asked to build, so requests arriving before
+   * the build lands do not queue it again. Kept for one refresh interval, after which the
+   * refresher builds it anyway.
+   */
+  private Cache<Long, Boolean> requestedRebuilds;
+
+  public OrderDetailReadModel(
+      OrderDetailSnapshotRepository orderDetailSnapshotRepository,
+      OrderRepository orderRepository,
+      OrderOrderLineService orderOrderLineService,
+      OrderServiceProperties orderServiceProperties,
+      @Qualifier("orderDetailsRebuildExecutor") Executor orderDetailsRebuildExecutor) {
+    this.orderDetailSnapshotRepository = orderDetailSnapshotRepository;
+    this.orderRepository = orderRepository;
+    this.orderOrderLineService = orderOrderLineService;
+    this.orderServiceProperties = orderServiceProperties;
+    this.orderDetailsRebuildExecutor = orderDetailsRebuildExecutor;
+    this.requestedRebuilds = Caffeine.newBuilder()
+        .expireAfterWrite(orderServiceProperties.getReadModel().getRefreshInterval().toMillis(),
+            TimeUnit.MILLISECONDS)
+        .build();
+  }
+
+  /**
+   * Details of the account's orders, or null if notModified accepts their entity tag. The tag,
+   * the check that the snapshots are of exactly the account's orders and the details are all read
+   * in one transaction, so on one database. Makes no downstream calls.
+   */
+  @Transactional(readOnly = true)
+  public List<OrderDetail> getOrderDetails(long accountId, Predicate<String> notModified) {
+    OrderNumbersStamp orders = orderRepository.findStampByAccountId(accountId);
+    OrderDetailSnapshotStamp snapshots = orderDetailSnapshotRepository
+        .findStampByAccountId(accountId);
+    // The snapshots are not of exactly the account's orders between a create or delete and its
+    // rebuild, or before the refresher first reaches an order.
+    if (orders.getCount() != snapshots.getCount()
+        || orders.getOrderNumberSum() != snapshots.getOrderNumberSum()) {
+      return getOrderDetailsOfOrders(accountId);
+    }
+    String eTag = getETag(snapshots);
+    if (eTag != null && notModified.test(eTag)) {
+      return null;
+    }
+    return orderDetailSnapshotRepository
+        .findAllByAccountIdOrderByOrderDateAscOrderNumberAsc(accountId).stream()
+        .map(OrderDetailSnapshot::getDetail)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Details of the account's orders as they are now, for when its snapshots are not of exactly
+   * its orders. Orders with a snapshot get it, snapshots of deleted orders are left out, and an
+   * order without one gets a pending detail built from the order alone, with every downstream
+   * field listed as stale, while its snapshot is built on the rebuild executor. They get no
+   * entity tag: one from the snapshots would not change when the pending details do.
+   */
+  private List<OrderDetail> getOrderDetailsOfOrders(long accountId) {
+    List<Order> orders = orderRepository
+        .findAllWithOrderLineItemsByAccountIdOrderByOrderDate(accountId);
+    Map<Long, OrderDetailSnapshot> snapshots = orderDetailSnapshotRepository
+        .findAllByAccountIdOrderByOrderDateAscOrderNumberAsc(accountId).stream()
+        .collect(Collectors.toMap(OrderDetailSnapshot::getOrderNumber, Function.identity()));
+
+    List<OrderDetail> orderDetails = new ArrayList<>(orders.size());
+    List<Long> missing = new ArrayList<>();
+    for (Order order : orders) {
+      OrderDetailSnapshot snapshot = snapshots.get(order.getOrderNumber());
+      if (snapshot != null) {
+        orderDetails.add(snapshot.getDetail());
+      } else {
+        orderDetails.add(getPendingOrderDetail(order));
+        if (requestedRebuilds.asMap().putIfAbsent(order.getOrderNumber(), Boolean.TRUE) == null) {
+          missing.add(order.getOrderNumber());
+        }
+      }
+    }
+    if (!missing.isEmpty()) {
+      orderDetailsRebuildExecutor.execute(() -> onOrdersChanged(new OrdersChangedEvent(missing)));
+    }
+    return orderDetails;
+  }
+
+  /**
+   * Entity tag for the account's snapshots, or null if it has none. Count and orderNumber sum
+   * change when a snapshot is added or dropped, the revision sum when one is rebuilt from a
+   * newer order revision, and the version sum on every save or backdating, whatever the order
+   * rebuilds finish in.
+   */
+  private static String getETag(OrderDetailSnapshotStamp stamp) {
+    if (stamp == null || stamp.getCount() == 0) {
+      return null;
+    }
+    return stamp.getCount() + "-" + stamp.getOrderNumberSum() + "-" + stamp.getRevisionSum()
+        + "-" + stamp.getVersionSum();
+  }
+
+  /**
+   * Rebuilds once the write that published the event has committed, on the rebuild executor so
+   * the write request does not wait for the downstream services; until it finishes the account's
+   * details show the previous snapshot.
+   * A failed rebuild keeps the previous snapshot, which the refresher rebuilds once it is older
+   * than the configured maximum age.
+   */
+  @Async("orderDetailsRebuildExecutor")
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onOrdersChanged(OrdersChangedEvent event) {
+    try {
+      refresh(event.getOrderNumbers());
+    } catch (RuntimeException e) {
+      logger.error("Could not refresh order details of orders {}", event.getOrderNumbers(), e);
+    }
+  }
+
+  /**
+   * Rebuilds the snapshots of the given orders and drops those of orders that no longer exist.
+   * A detail built from fallback data never replaces a snapshot; the snapshot is backdated
+   * instead, and an order without one gets a backdated snapshot, so the refresher retries both on
+   * its next run rather than serving fallback data as fresh. A snapshot of an order revision
+   * older than the stored one is never saved.
+   * Reads on the primary: a rebuild mostly runs right after the write that asked for it, and a
+   * replica that has not caught up would rebuild the previous revision, miss a created order, or
+   * still list a deleted one.
+   */
+  public void refresh(Collection<Long> orderNumbers) {
+    if (orderNumbers.isEmpty()) {
+      return;
+    }
+    ReplicaRoutingDataSource.onPrimary(() -> {
+      rebuild(orderNumbers);
+      return null;
+    });
+  }
+
+  private void rebuild(Collection<Long> orderNumbers) {
+    // Taken before the downstream lookups so a snapshot never looks newer than its data.
+    LocalDateTime refreshedAt = LocalDateTime.now();
+    List<Order> orders = orderRepository.findAllWithOrderLineItemsByOrderNumberIn(orderNumbers);
+    List<OrderDetail> orderDetails = orderOrderLineService.buildOrderDetails(orders);
+
+    List<OrderDetailSnapshot> snapshots = new ArrayList<>(orders.size());
+    List<OrderDetailSnapshot> staleSnapshots = new ArrayList<>();
+    Set<Long> found = new HashSet<>();
+    for (int i = 0; i < orders.size(); i++) {
+      OrderDetail orderDetail = orderDetails.get(i);
+      if (isStale(orderDetail)) {
+        staleSnapshots.add(new OrderDetailSnapshot(orders.get(i), orderDetail, refreshedAt));
+      } else {
+        snapshots.add(new OrderDetailSnapshot(orders.get(i), orderDetail, refreshedAt));
+      }
+      found.add(orders.get(i).getOrderNumber());
+    }
+    if (!staleSnapshots.isEmpty()) {
+      snapshots.addAll(expire(staleSnapshots,
+          refreshedAt.minus(orderServiceProperties.getReadModel().getMaxAge())));
+    }
+    List<OrderDetailSnapshot> saved = orderDetailSnapshotRepository.saveAllUnlessNewer(snapshots);
+    if (saved.size() < snapshots.size()) {
+      logger.info("Skipped {} order details already rebuilt from a newer revision",
+          snapshots.size() - saved.size());
+    }
+
+    List<Long> deleted = orderNumbers.stream()
+        .filter(orderNumber -> !found.contains(orderNumber))
+        .collect(Collectors.toList());
+    if (!deleted.isEmpty()) {
+      orderDetailSnapshotRepository.deleteByOrderNumberIn(deleted);
+    }
+  }
+
+  /**
+   * Backdates the stored snapshots of the given orders to due, and returns the given snapshots of
+   * orders that have none, backdated to due.
+   */
+  private List<OrderDetailSnapshot> expire(List<OrderDetailSnapshot> staleSnapshots,
+      LocalDateTime due) {
+    List<Long> orderNumbers = staleSnapshots.stream()
+        .map(OrderDetailSnapshot::getOrderNumber)
+        .collect(Collectors.toList());
+    logger.warn("Order details of orders {} were built from fallback data", orderNumbers);
+
+    Set<Long> stored = new HashSet<>(
+        orderDetailSnapshotRepository.findOrderNumbersByOrderNumberIn(orderNumbers));
+    if (!stored.isEmpty()) {
+      orderDetailSnapshotRepository.expireByOrderNumberIn(stored, due);
+    }
+    List<OrderDetailSnapshot> missing = new ArrayList<>();
+    for (OrderDetailSnapshot snapshot : staleSnapshots) {
+      if (!stored.contains(snapshot.getOrderNumber())) {
+        snapshot.setRefreshedAt(due);
+        missing.add(snapshot);
+      }
+    }
+    return missing;
+  }
+
+  private static OrderDetail getPendingOrderDetail(Order order) {
+    List<OrderLineSummary> orderLineSummaries = order.getOrderLineItems().stream()
+        .map(orderLineItem -> new OrderLineSummary("", orderLineItem.getQuantity()))
+        .collect(Collectors.toList());
+    OrderDetail orderDetail = new OrderDetail(order.getOrderNumber(), null, order.getTotalPrice(),
+        orderLineSummaries, new ArrayList<>());
+    orderDetail.setStaleFields(new ArrayList<>(Arrays.asList(OrderDetail.SHIPPING_ADDRESS,
+        OrderDetail.ORDER_LINE_ITEMS, OrderDetail.SHIPMENTS)));
+    return orderDetail;
+  }
+
+  private static boolean isStale(OrderDetail orderDetail) {
+    return orderDetail.getStaleFields() != null && !orderDetail.getStaleFields().isEmpty();
+  }
+}
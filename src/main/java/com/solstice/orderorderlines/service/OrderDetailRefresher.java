@@ -0,0 +1,112 @@
+package com.solstice.orderorderlines.service;
+
+import com.solstice.orderorderlines.config.OrderServiceProperties;
+import com.solstice.orderorderlines.dao.OrderDetailSnapshotRepository;
+import com.solstice.orderorderlines.dao.OrderRepository;
+import com.solstice.orderorderlines.dao.SchedulerLockRepository;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically builds snapshots for orders that have none yet and rebuilds the oldest ones, so
+ * changes to addresses, products and shipments reach the read model within the maximum age.
+ * Every instance schedules it, but a lease in the database lets only one of them run at a time.
+ */
+@Component
+public class OrderDetailRefresher implements SchedulingConfigurer {
+
+  static final String LOCK_NAME = "order-detail-refresher";
+
+  private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+  private final String owner =
+      ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+
+  private OrderDetailReadModel orderDetailReadModel;
+  private OrderRepository orderRepository;
+  private OrderDetailSnapshotRepository orderDetailSnapshotRepository;
+  private SchedulerLockRepository schedulerLockRepository;
+  private OrderServiceProperties orderServiceProperties;
+
+  public OrderDetailRefresher(
+      OrderDetailReadModel orderDetailReadModel,
+      OrderRepository orderRepository,
+      OrderDetailSnapshotRepository orderDetailSnapshotRepository,
+      SchedulerLockRepository schedulerLockRepository,
+      OrderServiceProperties orderServiceProperties) {
+    this.orderDetailReadModel = orderDetailReadModel;
+    this.orderRepository = orderRepository;
+    this.orderDetailSnapshotRepository = orderDetailSnapshotRepository;
+    this.schedulerLockRepository = schedulerLockRepository;
+    this.orderServiceProperties = orderServiceProperties;
+  }
+
+  @Override
+  public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+    taskRegistrar.addFixedDelayTask(this::refresh,
+        orderServiceProperties.getReadModel().getRefreshInterval().toMillis());
+  }
+
+  void refresh() {
+    OrderServiceProperties.ReadModel readModel = orderServiceProperties.getReadModel();
+    LocalDateTime now = LocalDateTime.now();
+    if (schedulerLockRepository.lock(LOCK_NAME, owner, now,
+        now.plus(readModel.getRefreshLockTtl())) == 0) {
+      logger.debug("Order details refresher is running on another instance");
+      return;
+    }
+    try {
+      Pageable batch = PageRequest.of(0, readModel.getRefreshBatchSize());
+      int missing = refresh("new",
+          () -> orderRepository.findOrderNumbersWithoutDetailSnapshot(batch));
+      int stale = refresh("stale",
+          () -> orderDetailSnapshotRepository.findOrderNumbersRefreshedBefore(
+              LocalDateTime.now().minus(readModel.getMaxAge()), batch));
+
+      if (missing > 0 || stale > 0) {
+        logger.info("Refreshed order details of {} new and {} stale orders", missing, stale);
+      }
+    } finally {
+      schedulerLockRepository.unlock(LOCK_NAME, owner, LocalDateTime.now());
+    }
+  }
+
+  /**
+   * Rebuilds one batch of orders a chunk at a time, so each build finishes within the details
+   * timeout. A failed lookup or chunk is logged and left to the next run without stopping the
+   * rest of the run. Returns the number of orders refreshed.
+   */
+  private int refresh(String kind, Supplier<List<Long>> findOrderNumbers) {
+    List<Long> orderNumbers;
+    try {
+      orderNumbers = findOrderNumbers.get();
+    } catch (RuntimeException e) {
+      logger.error("Could not find {} orders to refresh", kind, e);
+      return 0;
+    }
+
+    int chunkSize = orderServiceProperties.getReadModel().getRefreshChunkSize();
+    int refreshed = 0;
+    for (int from = 0; from < orderNumbers.size(); from += chunkSize) {
+      List<Long> chunk = orderNumbers.subList(from,
+          Math.min(from + chunkSize, orderNumbers.size()));
+      try {
+        orderDetailReadModel.refresh(chunk);
+        refreshed += chunk.size();
+      } catch (RuntimeException e) {
+        logger.error("Could not refresh order details of {} orders {}", kind, chunk, e);
+      }
+    }
+    return refreshed;
+  }
+}
@@ -1,24 +1,57 @@
 package com.solstice.orderorderlines.service;
 
-import com.netflix.hystrix.contrib.javanica.annotation.HystrixCommand;
+import com.netflix.hystrix.exception.HystrixRuntimeException;
+import com.solstice.orderorderlines.config.OrderServiceProperties;
 import com.solstice.orderorderlines.dao.OrderLineItemRepository;
 import com.solstice.orderorderlines.dao.OrderRepository;
+import com.solstice.orderorderlines.exception.HTTP400Exception;
+import com.solstice.orderorderlines.exception.HTTP503Exception;
+import com.solstice.orderorderlines.exception.HTTP504Exception;
 import com.solstice.orderorderlines.external.AccountAddressClient;
+import com.solstice.orderorderlines.external.AddressKey;
 import com.solstice.orderorderlines.external.ProductClient;
 import com.solstice.orderorderlines.external.ShipmentClient;
 import com.solstice.orderorderlines.model.Address;
 import com.solstice.orderorderlines.model.Order;
+import com.solstice.orderorderlines.model.OrderBatchResult;
 import com.solstice.orderorderlines.model.OrderDetail;
 import com.solstice.orderorderlines.model.OrderLineItem;
 import com.solstice.orderorderlines.model.OrderLineSummary;
+import com.solstice.orderorderlines.model.OrderPage;
 import com.solstice.orderorderlines.model.Product;
 import com.solstice.orderorderlines.model.Shipment;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class OrderOrderLineService {
@@ -30,158 +63,626 @@ public class OrderOrderLineService {
   private AccountAddressClient accountAddressClient;
   private ProductClient productClient;
   private ShipmentClient shipmentClient;
+  private Executor orderDetailsExecutor;
+  private OrderServiceProperties orderServiceProperties;
+  private EntityManager entityManager;
+  private ApplicationEventPublisher eventPublisher;
+  private ReadYourWrites readYourWrites;
 
   public OrderOrderLineService(
       OrderLineItemRepository orderLineItemRepository,
       OrderRepository orderRepository,
       AccountAddressClient accountAddressClient,
       ProductClient productClient,
-      ShipmentClient shipmentClient) {
+      ShipmentClient shipmentClient,
+      @Qualifier("orderDetailsExecutor") Executor orderDetailsExecutor,
+      OrderServiceProperties orderServiceProperties,
+      EntityManager entityManager,
+      ApplicationEventPublisher eventPublisher,
+      ReadYourWrites readYourWrites) {
     this.orderLineItemRepository = orderLineItemRepository;
     this.orderRepository = orderRepository;
     this.accountAddressClient = accountAddressClient;
     this.productClient = productClient;
     this.shipmentClient = shipmentClient;
+    this.orderDetailsExecutor = orderDetailsExecutor;
+    this.orderServiceProperties = orderServiceProperties;
+    this.entityManager = entityManager;
+    this.eventPublisher = eventPublisher;
+    this.readYourWrites = readYourWrites;
   }
 
-  public List<Order> getOrders() {
-    return orderRepository.findAll();
+  @Transactional(readOnly = true)
+  public OrderPage getOrders(String cursor, Integer size) {
+    int pageSize = getPageSize(size);
+    long after = cursor == null ? 0 : OrderCursor.decode(cursor).getOrderNumber();
+    List<Long> orderNumbers = orderRepository
+        .findOrderNumbersAfter(after, PageRequest.of(0, pageSize + 1));
+    return getOrderPage(orderNumbers, pageSize, order -> OrderCursor.of(order.getOrderNumber()));
   }
 
+  /**
+   * Hands every order, with its line items, to the consumer in orderNumber order while reading
+   * them from a database cursor. Each order is detached once consumed so the persistence context
+   * does not grow with the size of the export.
+   */
+  @Transactional(readOnly = true)
+  public void exportOrders(Consumer<Order> consumer) {
+    try (Stream<Order> orders = orderRepository.streamAllWithOrderLineItems()) {
+      orders.forEach(order -> {
+        consumer.accept(order);
+        entityManager.detach(order);
+      });
+    }
+  }
+
+  @Transactional(readOnly = true)
   public Order getOrderById(long id) {
-    return orderRepository.findByOrderNumber(id);
+    return readYourWrites.readOrder(id, () -> orderRepository.findByOrderNumber(id));
   }
 
+  @Transactional
   public Order createOrder(Order order) {
+    clearIds(order);
+    setDefaultOrderDate(order);
     setPrices(order);
     orderRepository.save(order);
+    readYourWrites.accountWritten(order.getAccountId());
+    publishOrdersChanged(order.getOrderNumber());
     return order;
   }
 
+  /**
+   * Prices every order in the batch with a single product lookup and persists the accepted orders
+   * in chunks, each chunk in its own transaction. Results are returned in request order.
+   */
+  public List<OrderBatchResult> createOrders(List<Order> orders) {
+    OrderServiceProperties.Batch batch = orderServiceProperties.getBatch();
+    if (orders == null || orders.isEmpty()) {
+      throw new HTTP400Exception("Batch must contain at least one order");
+    }
+    if (orders.size() > batch.getMaxSize()) {
+      throw new HTTP400Exception("Batch must not contain more than " + batch.getMaxSize()
+          + " orders");
+    }
+
+    OrderBatchResult[] results = new OrderBatchResult[orders.size()];
+    List<Integer> accepted = new ArrayList<>();
+    List<OrderLineItem> allOrderLineItems = new ArrayList<>();
+    for (int i = 0; i < orders.size(); i++) {
+      Order order = orders.get(i);
+      if (order == null || order.getOrderLineItems() == null) {
+        results[i] = OrderBatchResult.rejected(i, "Order must have orderLineItems");
+      } else {
+        clearIds(order);
+        setDefaultOrderDate(order);
+        accepted.add(i);
+        allOrderLineItems.addAll(order.getOrderLineItems());
+      }
+    }
+
+    Map<Long, Product> products = getProducts(allOrderLineItems);
+    List<Integer> priced = new ArrayList<>();
+    for (Integer i : accepted) {
+      try {
+        setPrices(orders.get(i), products);
+        priced.add(i);
+      } catch (HTTP400Exception e) {
+        results[i] = OrderBatchResult.rejected(i, e.getMessage());
+      } catch (HTTP503Exception e) {
+        results[i] = OrderBatchResult.failed(i, e.getMessage());
+      }
+    }
+
+    for (int from = 0; from < priced.size(); from += batch.getChunkSize()) {
+      List<Integer> chunk = priced.subList(from,
+          Math.min(from + batch.getChunkSize(), priced.size()));
+      try {
+        orderRepository.saveAll(chunk.stream().map(orders::get).collect(Collectors.toList()));
+        chunk.forEach(i -> results[i] = OrderBatchResult.created(i, orders.get(i)));
+      } catch (DataAccessException e) {
+        logger.error("Could not persist orders {} to {} of batch", chunk.get(0),
+            chunk.get(chunk.size() - 1), e);
+        chunk.forEach(i -> results[i] = OrderBatchResult.failed(i, "Could not persist order"));
+      }
+    }
+
+    List<Long> createdOrderNumbers = new ArrayList<>();
+    for (OrderBatchResult result : results) {
+      if (result.getStatus() == OrderBatchResult.Status.CREATED) {
+        readYourWrites.orderWritten(result.getOrder().getOrderNumber());
+        readYourWrites.accountWritten(result.getOrder().getAccountId());
+        createdOrderNumbers.add(result.getOrder().getOrderNumber());
+      }
+    }
+    if (!createdOrderNumbers.isEmpty()) {
+      eventPublisher.publishEvent(new OrdersChangedEvent(createdOrderNumbers));
+    }
+
+    return Arrays.asList(results);
+  }
+
+  @Transactional
   public Order updateOrder(long id, Order orderToUpdate){
-    if(orderToUpdate == null || orderRepository.findByOrderNumber(id) == null) {
+    Order dbOrder = orderRepository.findForUpdateByOrderNumber(id);
+    if(orderToUpdate == null || dbOrder == null) {
       return null;
     }
+    if (orderToUpdate.getOrderDate() == null) {
+      orderToUpdate.setOrderDate(dbOrder.getOrderDate());
+    }
     setPrices(orderToUpdate);
     orderToUpdate.setOrderNumber(id);
+    // Merged over the locked stored order, so the bumped revision is written with it.
+    orderToUpdate.setRevision(dbOrder.getRevision());
+    orderToUpdate.incrementRevision();
     orderRepository.save(orderToUpdate);
+    readYourWrites.accountWritten(orderToUpdate.getAccountId());
+    publishOrdersChanged(id);
     return orderToUpdate;
   }
 
+  @Transactional
   public Order deleteOrder(long id) {
     Order deletedOrder = getOrderById(id);
     if (deletedOrder != null) {
       orderRepository.delete(deletedOrder);
+      readYourWrites.accountWritten(deletedOrder.getAccountId());
+      publishOrdersChanged(id);
     }
     return deletedOrder;
   }
 
+  /**
+   * Entity tag for the order and its line items, or null if there is no such order.
+   */
+  @Transactional(readOnly = true)
+  public String getOrderETag(long id) {
+    Long revision = readYourWrites.readOrder(id,
+        () -> orderRepository.findRevisionByOrderNumber(id));
+    return revision == null ? null : id + "-" + revision;
+  }
+
+  @Transactional(readOnly = true)
   public List<OrderLineItem> getOrderLineItems(long id) {
-    return orderRepository.findOrderLineItemsByOrderNumber(id);
+    return readYourWrites.readOrderUncached(id,
+        () -> orderRepository.findOrderLineItemsByOrderNumber(id));
   }
 
+  @Transactional
   public OrderLineItem createOrderLineItem(long id, OrderLineItem orderLineItem) {
-    Order order = orderRepository.findByOrderNumber(id);
+    Order order = orderRepository.findForUpdateByOrderNumber(id);
     if (orderLineItem == null || order == null) {
       return null;
     }
     setPrice(orderLineItem);
     order.addOrderLineItem(orderLineItem);
+    order.incrementRevision();
     orderRepository.save(order);
+    readYourWrites.accountWritten(order.getAccountId());
+    publishOrdersChanged(id);
 
     return orderLineItem;
   }
 
+  @Transactional
   public OrderLineItem updateOrderLineItem(long orderId, long orderLineId, OrderLineItem orderLineItem) {
     OrderLineItem dbOrderLineItem = orderLineItemRepository
         .findOrderLineItemByIdAndOrderId(orderLineId, orderId);
-    if (orderLineItem == null || dbOrderLineItem == null) {
+    Order order = orderRepository.findForUpdateByOrderNumber(orderId);
+    if (orderLineItem == null || dbOrderLineItem == null || order == null) {
       return null;
     }
     setPrice(orderLineItem);
-    orderLineItem.setId(orderId);
+    orderLineItem.setId(orderLineId);
     orderLineItemRepository.save(orderLineItem);
+    // The order's line collection holds the line just merged, so this picks up its new total.
+    order.setTotalPrice();
+    order.incrementRevision();
+    publishOrdersChanged(orderId);
 
     return orderLineItem;
   }
 
+  @Transactional
   public OrderLineItem deleteOrderLineItem(long orderId, long orderLineId) {
     OrderLineItem deletedOrderLineItem = orderLineItemRepository
         .findOrderLineItemByIdAndOrderId(orderLineId, orderId);
-    if (deletedOrderLineItem != null) {
-      orderLineItemRepository.delete(deletedOrderLineItem);
+    Order order = orderRepository.findForUpdateByOrderNumber(orderId);
+    if (deletedOrderLineItem == null || order == null) {
+      return null;
     }
+    // Orphan removal deletes the line.
+    order.removeOrderLineItem(orderLineId);
+    order.incrementRevision();
+    publishOrdersChanged(orderId);
     return deletedOrderLineItem;
   }
 
-  public List<Order> getOrdersByAccountId(long accountId) {
-    return orderRepository.findAllByAccountIdOrderByOrderDate(accountId);
+  @Transactional(readOnly = true)
+  public OrderPage getOrdersByAccountId(long accountId, String cursor, Integer size) {
+    return readYourWrites.readAccount(accountId,
+        () -> findOrdersByAccountId(accountId, cursor, size));
+  }
+
+  private OrderPage findOrdersByAccountId(long accountId, String cursor, Integer size) {
+    int pageSize = getPageSize(size);
+    Pageable limit = PageRequest.of(0, pageSize + 1);
+    List<Long> orderNumbers;
+    if (cursor == null) {
+      orderNumbers = orderRepository.findOrderNumbersByAccountId(accountId, limit);
+    } else {
+      OrderCursor after = OrderCursor.decode(cursor);
+      if (after.getOrderDate() == null) {
+        throw new HTTP400Exception("Invalid cursor: " + cursor);
+      }
+      orderNumbers = orderRepository.findOrderNumbersByAccountIdAfter(
+          accountId, after.getOrderDate(), after.getOrderNumber(), limit);
+    }
+    return getOrderPage(orderNumbers, pageSize,
+        order -> OrderCursor.of(order.getOrderDate(), order.getOrderNumber()));
   }
 
+  /**
+   * Builds the details of every order of the account from the downstream services. Requests are
+   * served from {@link OrderDetailReadModel}; this is the path that fills it.
+   */
   public List<OrderDetail> getOrderDetails(long accountId) {
-    List<OrderDetail> orderDetails = new ArrayList<>();
-    List<Order> orders = orderRepository.findAllByAccountIdOrderByOrderDate(accountId);
+    return buildOrderDetails(orderRepository
+        .findAllWithOrderLineItemsByAccountIdOrderByOrderDate(accountId));
+  }
+
+  /**
+   * Builds one detail per order, in the order given. The orders must have their line items
+   * loaded.
+   */
+  public List<OrderDetail> buildOrderDetails(List<Order> orders) {
+    List<OrderLineItem> allOrderLineItems = orders.stream()
+        .flatMap(order -> order.getOrderLineItems().stream())
+        .collect(Collectors.toList());
 
+    if (orderServiceProperties.getDetails().isParallel()) {
+      return getOrderDetailsConcurrently(orders, allOrderLineItems);
+    }
+
+    Map<Long, Product> products = getProducts(allOrderLineItems);
+    Map<AddressKey, Address> addresses = new HashMap<>();
+    List<OrderDetail> orderDetails = new ArrayList<>();
     for (Order order : orders) {
-      Address address = accountAddressClient.getAddressByAccountIdAndAddressId(
-          order.getAccountId(), order.getShippingAddressId());
-      logger.info("Address from feign client: {}", address);
-      List<OrderLineItem> orderLineItems = orderRepository
-          .findOrderLineItemsByOrderNumber(order.getOrderNumber());
+      List<OrderLineItem> orderLineItems = order.getOrderLineItems();
 
-      List<Shipment> shipments = getShipmentsForOrderLineItems(orderLineItems);
+      Map<Long, List<OrderLineItem>> orderLineItemsByShipmentId =
+          groupByShipmentId(orderLineItems);
 
-      orderDetails.add(new OrderDetail(
+      OrderDetail orderDetail = new OrderDetail(
           order.getOrderNumber(),
-          address,
+          addresses.computeIfAbsent(getAddressKey(order),
+              addressKey -> getShippingAddress(order)),
           order.getTotalPrice(),
-          getOrderLineSummaries(orderLineItems),
-          shipments
-      ));
+          getOrderLineSummaries(orderLineItems, products),
+          setShipmentLineSummaries(
+              getShipmentsForOrderLineItems(orderLineItemsByShipmentId),
+              orderLineItemsByShipmentId,
+              products)
+      );
+      orderDetail.setStaleFields(getStaleFields(orderDetail, orderLineItems, products));
+      orderDetails.add(orderDetail);
     }
 
     return orderDetails;
   }
 
-  @HystrixCommand(fallbackMethod = "getShipmentsFallback")
-  private List<Shipment> getShipmentsForOrderLineItems(List<OrderLineItem> orderLineItems) {
-    List<Shipment> shipments = new ArrayList<>();
-    for (OrderLineItem orderLineItem : orderLineItems) {
-      Shipment shipment = shipmentClient.getShipmentById(orderLineItem.getShipmentId());
-      logger.info("Shipment from feign client: {}", shipment);
-      shipment.setOrderLineItems(getOrderLineSummaries(
-          orderLineItems
-              .stream()
-              .filter(o -> o.getShipmentId() == shipment.getId())
-              .collect(Collectors.toList()))
-      );
-      shipments.add(shipment);
+  private List<OrderDetail> getOrderDetailsConcurrently(List<Order> orders,
+      List<OrderLineItem> allOrderLineItems) {
+    List<Future<?>> lookups = new ArrayList<>();
+    List<CompletableFuture<OrderDetail>> orderDetails = new ArrayList<>();
+    Map<AddressKey, CompletableFuture<Address>> addresses = new HashMap<>();
+
+    // One product lookup serves every order of the request.
+    CompletableFuture<Map<Long, Product>> products = submit(
+        () -> getProducts(allOrderLineItems), lookups);
+
+    for (Order order : orders) {
+      List<OrderLineItem> orderLineItems = order.getOrderLineItems();
+      Map<Long, List<OrderLineItem>> orderLineItemsByShipmentId =
+          groupByShipmentId(orderLineItems);
+      long orderNumber = order.getOrderNumber();
+      long totalPrice = order.getTotalPrice();
+
+      // Orders of an account mostly share a few addresses, so each one is requested once.
+      CompletableFuture<Address> address = addresses.computeIfAbsent(getAddressKey(order),
+          addressKey -> submit(() -> getShippingAddress(order), lookups));
+      CompletableFuture<List<Shipment>> shipments = submit(
+          () -> getShipmentsForOrderLineItems(orderLineItemsByShipmentId), lookups)
+          .thenCombine(products, (fetchedShipments, orderProducts) -> setShipmentLineSummaries(
+              fetchedShipments, orderLineItemsByShipmentId, orderProducts));
+
+      orderDetails.add(address
+          .thenCombine(products, (shippingAddress, orderProducts) -> new OrderDetail(
+              orderNumber,
+              shippingAddress,
+              totalPrice,
+              getOrderLineSummaries(orderLineItems, orderProducts),
+              null))
+          .thenCombine(shipments, (orderDetail, orderShipments) -> {
+            orderDetail.setShipments(orderShipments);
+            return orderDetail;
+          })
+          .thenCombine(products, (orderDetail, orderProducts) -> {
+            orderDetail.setStaleFields(getStaleFields(orderDetail, orderLineItems, orderProducts));
+            return orderDetail;
+          }));
+    }
+
+    long timeout = orderServiceProperties.getDetails().getTimeout().toMillis();
+    try {
+      CompletableFuture.allOf(orderDetails.toArray(new CompletableFuture[0]))
+          .get(timeout, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      cancel(lookups);
+      throw new HTTP504Exception("Timed out after " + timeout + "ms building order details");
+    } catch (InterruptedException e) {
+      cancel(lookups);
+      Thread.currentThread().interrupt();
+      throw new HTTP504Exception("Interrupted while building order details", e);
+    } catch (ExecutionException e) {
+      cancel(lookups);
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+
+    return orderDetails.stream()
+        .map(CompletableFuture::join)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Runs the lookup on the order details executor and keeps its task in lookups, so a build that
+   * gives up can interrupt the lookups still holding pool threads. A saturated executor fails the
+   * whole build with 503 rather than running lookups on the request thread, outside the timeout.
+   */
+  private <T> CompletableFuture<T> submit(Callable<T> lookup, List<Future<?>> lookups) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    FutureTask<T> task = new FutureTask<T>(lookup) {
+      @Override
+      protected void done() {
+        if (isCancelled()) {
+          result.cancel(false);
+          return;
+        }
+        try {
+          result.complete(get());
+        } catch (ExecutionException e) {
+          result.completeExceptionally(e.getCause());
+        } catch (InterruptedException e) {
+          result.completeExceptionally(e);
+        }
+      }
+    };
+    try {
+      orderDetailsExecutor.execute(task);
+    } catch (RejectedExecutionException e) {
+      cancel(lookups);
+      throw new HTTP503Exception("Too many order details lookups in progress", e);
+    }
+    lookups.add(task);
+    return result;
+  }
+
+  private static void cancel(List<Future<?>> lookups) {
+    lookups.forEach(lookup -> lookup.cancel(true));
+  }
+
+  private void publishOrdersChanged(long orderNumber) {
+    readYourWrites.orderWritten(orderNumber);
+    eventPublisher.publishEvent(new OrdersChangedEvent(Collections.singletonList(orderNumber)));
+  }
+
+  private int getPageSize(Integer size) {
+    OrderServiceProperties.Paging paging = orderServiceProperties.getPaging();
+    if (size == null) {
+      return paging.getDefaultSize();
+    }
+    if (size < 1) {
+      throw new HTTP400Exception("Page size must be positive");
+    }
+    return Math.min(size, paging.getMaxSize());
+  }
+
+  private OrderPage getOrderPage(List<Long> orderNumbers, int pageSize,
+      Function<Order, OrderCursor> cursorOf) {
+    boolean hasNext = orderNumbers.size() > pageSize;
+    List<Long> pageOrderNumbers = new ArrayList<>(
+        hasNext ? orderNumbers.subList(0, pageSize) : orderNumbers);
+    if (pageOrderNumbers.isEmpty()) {
+      return new OrderPage(new ArrayList<>(), null);
+    }
+    Map<Long, Order> ordersByNumber = new HashMap<>();
+    for (Order order : orderRepository.findAllWithOrderLineItemsByOrderNumberIn(pageOrderNumbers)) {
+      ordersByNumber.put(order.getOrderNumber(), order);
+    }
+    List<Order> orders = new ArrayList<>();
+    for (Long orderNumber : pageOrderNumbers) {
+      Order order = ordersByNumber.get(orderNumber);
+      if (order != null) {
+        orders.add(order);
+      }
+    }
+    String nextCursor = hasNext && !orders.isEmpty()
+        ? cursorOf.apply(orders.get(orders.size() - 1)).encode()
+        : null;
+    return new OrderPage(orders, nextCursor);
+  }
+
+  /**
+   * Orders being built may belong to different accounts, whose address ids overlap.
+   */
+  private static AddressKey getAddressKey(Order order) {
+    return new AddressKey(order.getAccountId(), order.getShippingAddressId());
+  }
+
+  private Address getShippingAddress(Order order) {
+    Address address = accountAddressClient.getAddressByAccountIdAndAddressId(
+        order.getAccountId(), order.getShippingAddressId());
+    logger.info("Address from feign client: {}", address);
+    return address;
+  }
+
+  private List<Shipment> getShipmentsForOrderLineItems(
+      Map<Long, List<OrderLineItem>> orderLineItemsByShipmentId) {
+    if (orderLineItemsByShipmentId.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    List<Shipment> found;
+    try {
+      found = shipmentClient.getShipmentsByIds(orderLineItemsByShipmentId.keySet());
+    } catch (HystrixRuntimeException e) {
+      logger.warn("Shipments unavailable, building order details with placeholders", e);
+      found = orderLineItemsByShipmentId.keySet().stream()
+          .map(shipmentId -> {
+            Shipment shipment = new Shipment();
+            shipment.setId(shipmentId);
+            shipment.setFallback(true);
+            return shipment;
+          })
+          .collect(Collectors.toList());
+    }
+    logger.info("Shipments from feign client: {}", found);
+    Map<Long, Shipment> shipmentsById = new HashMap<>();
+    if (found != null) {
+      found.forEach(shipment -> shipmentsById.putIfAbsent(shipment.getId(), shipment));
+    }
+
+    List<Shipment> shipments = new ArrayList<>(shipmentsById.size());
+    for (Long shipmentId : orderLineItemsByShipmentId.keySet()) {
+      Shipment shipment = shipmentsById.get(shipmentId);
+      if (shipment != null) {
+        shipments.add(shipment);
+      }
     }
     return shipments;
   }
 
-  private List<Shipment> getShipmentsFallback(List<OrderLineItem> orderLineItems) {
-    return new ArrayList<>();
+  /**
+   * Names the fields of the detail that were built from fallback data.
+   */
+  private static List<String> getStaleFields(OrderDetail orderDetail,
+      List<OrderLineItem> orderLineItems, Map<Long, Product> products) {
+    List<String> staleFields = new ArrayList<>();
+    Address shippingAddress = orderDetail.getShippingAddress();
+    if (shippingAddress != null && shippingAddress.isFallback()) {
+      staleFields.add(OrderDetail.SHIPPING_ADDRESS);
+    }
+    if (orderLineItems.stream()
+        .map(orderLineItem -> products.get(orderLineItem.getProductId()))
+        .anyMatch(product -> product != null && product.isFallback())) {
+      staleFields.add(OrderDetail.ORDER_LINE_ITEMS);
+    }
+    List<Shipment> shipments = orderDetail.getShipments();
+    if (shipments != null && shipments.stream().anyMatch(Shipment::isFallback)) {
+      staleFields.add(OrderDetail.SHIPMENTS);
+    }
+    return staleFields;
+  }
+
+  private List<Shipment> setShipmentLineSummaries(List<Shipment> shipments,
+      Map<Long, List<OrderLineItem>> orderLineItemsByShipmentId, Map<Long, Product> products) {
+    shipments.forEach(shipment -> shipment.setOrderLineItems(getOrderLineSummaries(
+        orderLineItemsByShipmentId.get(shipment.getId()), products)));
+    return shipments;
+  }
+
+  static Map<Long, List<OrderLineItem>> groupByShipmentId(
+      List<OrderLineItem> orderLineItems) {
+    Map<Long, List<OrderLineItem>> orderLineItemsByShipmentId = new LinkedHashMap<>();
+    for (OrderLineItem orderLineItem : orderLineItems) {
+      orderLineItemsByShipmentId
+          .computeIfAbsent(orderLineItem.getShipmentId(), shipmentId -> new ArrayList<>())
+          .add(orderLineItem);
+    }
+    return orderLineItemsByShipmentId;
+  }
+
+  /**
+   * A create never takes ids from the request body; saving an order or line with an existing id
+   * would merge it over the stored one.
+   */
+  private static void clearIds(Order order) {
+    order.setOrderNumber(0);
+    if (order.getOrderLineItems() != null) {
+      order.getOrderLineItems().forEach(orderLineItem -> orderLineItem.setId(0));
+    }
+  }
+
+  /**
+   * Orders are listed and paged by orderDate, so one posted without it is dated now.
+   */
+  private static void setDefaultOrderDate(Order order) {
+    if (order.getOrderDate() == null) {
+      order.setOrderDate(LocalDateTime.now());
+    }
   }
 
   private void setPrices(Order order) {
+    setPrices(order, getProducts(order.getOrderLineItems()));
+  }
+
+  private void setPrices(Order order, Map<Long, Product> products) {
     for (OrderLineItem orderLineItem : order.getOrderLineItems()) {
       logger.debug(orderLineItem.toString());
-      setPrice(orderLineItem);
+      orderLineItem.setPrice(getPrice(orderLineItem.getProductId(),
+          products.get(orderLineItem.getProductId())));
     }
     order.setTotalPrice();
   }
 
   private void setPrice(OrderLineItem orderLineItem) {
-    Product product = productClient.getProductById(orderLineItem.getProductId());
-    orderLineItem.setPrice(product.getPrice());
+    orderLineItem.setPrice(getPrice(orderLineItem.getProductId(),
+        productClient.getProductById(orderLineItem.getProductId())));
+  }
+
+  /**
+   * Price to save on a line of the product. A product product-service did not return, or one
+   * that only came from a fallback, is never priced, so no line is saved at 0 or at a stale price.
+   */
+  private static long getPrice(long productId, Product product) {
+    if (product == null) {
+      throw new HTTP400Exception("Unknown product " + productId);
+    }
+    if (product.isFallback()) {
+      throw new HTTP503Exception("Could not price product " + productId
+          + ", product-service is unavailable");
+    }
+    return product.getPrice();
+  }
+
+  private Map<Long, Product> getProducts(List<OrderLineItem> orderLineItems) {
+    Set<Long> productIds = orderLineItems.stream()
+        .map(OrderLineItem::getProductId)
+        .collect(Collectors.toSet());
+    Map<Long, Product> products = new HashMap<>();
+    if (productIds.isEmpty()) {
+      return products;
+    }
+
+    List<Product> found = productClient.getProductsByIds(productIds);
+    logger.info("Products from feign client: {} of {} requested",
+        found == null ? 0 : found.size(), productIds.size());
+    if (found != null) {
+      found.forEach(product -> products.put(product.getId(), product));
+    }
+    return products;
   }
 
-  private List<OrderLineSummary> getOrderLineSummaries(List<OrderLineItem> orderLineItems) {
+  private List<OrderLineSummary> getOrderLineSummaries(List<OrderLineItem> orderLineItems,
+      Map<Long, Product> products) {
     List<OrderLineSummary> orderLineSummaries = new ArrayList<>();
 
     orderLineItems.forEach(orderLineItem -> {
-      Product product = productClient.getProductById(orderLineItem.getProductId());
+      Product product = products.get(orderLineItem.getProductId());
       orderLineSummaries.add(new OrderLineSummary(
           product == null ? "" : product.getName(),
           orderLineItem.getQuantity()
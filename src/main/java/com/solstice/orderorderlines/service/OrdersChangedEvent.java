@@ -0,0 +1,19 @@
+package com.solstice.orderorderlines.service;
+
+import java.util.Collection;
+
+/**
+ * Published after orders or their line items were created, updated or deleted.
+ */
+public final class OrdersChangedEvent {
+
+  private final Collection<Long> orderNumbers;
+
+  OrdersChangedEvent(Collection<Long> orderNumbers) {
+    this.orderNumbers = orderNumbers;
+  }
+
+  public Collection<Long> getOrderNumbers() {
+    return orderNumbers;
+  }
+}
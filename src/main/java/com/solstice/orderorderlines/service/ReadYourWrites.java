@@ -0,0 +1,86 @@
+package com.solstice.orderorderlines.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.solstice.orderorderlines.config.ReadReplicaProperties;
+import com.solstice.orderorderlines.dao.ReplicaRoutingDataSource;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.persistence.CacheRetrieveMode;
+import javax.persistence.EntityManager;
+import org.springframework.stereotype.Component;
+
+/**
+ * Remembers the orders and accounts this instance wrote within the read-your-writes window and
+ * sends reads of them to the primary, past the second-level cache, so a client never reads its
+ * own write back from a replica or a cache entry that has not caught up.
+ */
+@Component
+class ReadYourWrites {
+
+  private static final long MAXIMUM_SIZE = 100_000;
+  private static final String CACHE_RETRIEVE_MODE = "javax.persistence.cache.retrieveMode";
+
+  private final Cache<String, Boolean> recentWrites;
+  private final EntityManager entityManager;
+
+  ReadYourWrites(ReadReplicaProperties readReplicaProperties, EntityManager entityManager) {
+    this.recentWrites = Caffeine.newBuilder()
+        .maximumSize(MAXIMUM_SIZE)
+        .expireAfterWrite(readReplicaProperties.getReadYourWritesWindow().toMillis(),
+            TimeUnit.MILLISECONDS)
+        .build();
+    this.entityManager = entityManager;
+  }
+
+  void orderWritten(long orderNumber) {
+    recentWrites.put(orderKey(orderNumber), Boolean.TRUE);
+  }
+
+  void accountWritten(long accountId) {
+    recentWrites.put(accountKey(accountId), Boolean.TRUE);
+  }
+
+  <T> T readOrder(long orderNumber, Supplier<T> read) {
+    return read(orderKey(orderNumber), read);
+  }
+
+  /**
+   * Reads the order past the second-level cache even when this instance did not write it, for
+   * reads that must match the revision behind its ETag.
+   */
+  <T> T readOrderUncached(long orderNumber, Supplier<T> read) {
+    return read(orderKey(orderNumber), () -> bypassingEntityCache(read));
+  }
+
+  <T> T readAccount(long accountId, Supplier<T> read) {
+    return read(accountKey(accountId), read);
+  }
+
+  private <T> T read(String key, Supplier<T> read) {
+    return recentWrites.getIfPresent(key) != null
+        ? ReplicaRoutingDataSource.onPrimary(() -> bypassingEntityCache(read))
+        : read.get();
+  }
+
+  /**
+   * Entities read meanwhile come from the database and are put back into the cache, so later
+   * cached reads on this instance see them too.
+   */
+  private <T> T bypassingEntityCache(Supplier<T> read) {
+    entityManager.setProperty(CACHE_RETRIEVE_MODE, CacheRetrieveMode.BYPASS);
+    try {
+      return read.get();
+    } finally {
+      entityManager.setProperty(CACHE_RETRIEVE_MODE, CacheRetrieveMode.USE);
+    }
+  }
+
+  private static String orderKey(long orderNumber) {
+    return "order:" + orderNumber;
+  }
+
+  private static String accountKey(long accountId) {
+    return "account:" + accountId;
+  }
+}
@@ -0,0 +1,39 @@
+-- Schema previously generated by hibernate.ddl-auto=create.
+
+create sequence order_seq start with 1 increment by 50;
+create sequence order_line_item_seq start with 1 increment by 50;
+
+create table orders (
+  order_number bigint not null,
+  account_id bigint not null,
+  order_date timestamp,
+  shipping_address_id bigint not null,
+  total_price bigint not null,
+  revision bigint not null default 0,
+  primary key (order_number)
+);
+
+create table order_line_item (
+  id bigint not null,
+  product_id bigint not null,
+  quantity integer not null,
+  price bigint not null,
+  total_price bigint not null,
+  shipment_id bigint not null,
+  order_id bigint,
+  primary key (id),
+  constraint fk_order_line_item_order foreign key (order_id) references orders (order_number)
+);
+
+create table order_detail_snapshot (
+  order_number bigint not null,
+  account_id bigint not null,
+  order_date timestamp,
+  refreshed_at timestamp,
+  detail varchar(1000000) not null,
+  primary key (order_number)
+);
+
+create index idx_order_detail_snapshot_account
+  on order_detail_snapshot (account_id, order_date, order_number);
+create index idx_order_detail_snapshot_refreshed on order_detail_snapshot (refreshed_at);
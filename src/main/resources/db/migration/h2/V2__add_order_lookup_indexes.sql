@@ -0,0 +1,6 @@
+-- Orders of an account, in the order they are listed and paged.
+create index idx_orders_account_date on orders (account_id, order_date, order_number);
+
+-- Line items of an order, and of a shipment.
+create index idx_order_line_item_order on order_line_item (order_id);
+create index idx_order_line_item_shipment on order_line_item (shipment_id);
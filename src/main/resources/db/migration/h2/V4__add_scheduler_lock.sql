@@ -0,0 +1,8 @@
+-- Leases that keep a scheduled job to one instance at a time.
+create table scheduler_lock (
+  name varchar(64) not null,
+  locked_until timestamp not null,
+  locked_by varchar(255) not null,
+  primary key (name)
+);
+insert into scheduler_lock values ('order-detail-refresher', timestamp '1970-01-01 00:00:00', '');
@@ -0,0 +1,3 @@
+-- Revision of the order each snapshot was built from, so a slower rebuild of an older revision
+-- never overwrites a newer snapshot. Existing snapshots count as built from revision 0.
+alter table order_detail_snapshot add column revision bigint not null default 0;
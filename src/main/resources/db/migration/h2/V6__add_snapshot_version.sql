@@ -0,0 +1,3 @@
+-- Bumped every time a snapshot is saved or backdated, so the account's order details ETag
+-- changes with every change to its snapshots, in whatever order rebuilds save them.
+alter table order_detail_snapshot add column version bigint not null default 0;
@@ -0,0 +1,4 @@
+-- Lines are inserted with their order id now, and only orphan removal takes a line off its
+-- order. A line without an order belongs to no one and can never be read.
+delete from order_line_item where order_id is null;
+alter table order_line_item alter column order_id set not null;
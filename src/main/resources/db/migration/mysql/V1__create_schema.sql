@@ -0,0 +1,47 @@
+-- Schema previously generated by hibernate.ddl-auto=create.
+-- MySQL has no sequences, so Hibernate backs order_seq and order_line_item_seq with tables.
+
+create table order_seq (
+  next_val bigint
+) engine=InnoDB;
+insert into order_seq values (1);
+
+create table order_line_item_seq (
+  next_val bigint
+) engine=InnoDB;
+insert into order_line_item_seq values (1);
+
+create table orders (
+  order_number bigint not null,
+  account_id bigint not null,
+  order_date datetime(6),
+  shipping_address_id bigint not null,
+  total_price bigint not null,
+  revision bigint not null default 0,
+  primary key (order_number)
+) engine=InnoDB;
+
+create table order_line_item (
+  id bigint not null,
+  product_id bigint not null,
+  quantity integer not null,
+  price bigint not null,
+  total_price bigint not null,
+  shipment_id bigint not null,
+  order_id bigint,
+  primary key (id),
+  constraint fk_order_line_item_order foreign key (order_id) references orders (order_number)
+) engine=InnoDB;
+
+create table order_detail_snapshot (
+  order_number bigint not null,
+  account_id bigint not null,
+  order_date datetime(6),
+  refreshed_at datetime(6),
+  detail longtext not null,
+  primary key (order_number)
+) engine=InnoDB;
+
+create index idx_order_detail_snapshot_account
+  on order_detail_snapshot (account_id, order_date, order_number);
+create index idx_order_detail_snapshot_refreshed on order_detail_snapshot (refreshed_at);
@@ -0,0 +1,4 @@
+-- Account listings are paged by (order_date, order_number); an order without a date would drop
+-- out of every page after the first. Undated orders are dated as of this migration.
+update orders set order_date = current_timestamp(6) where order_date is null;
+alter table orders modify order_date datetime(6) not null;
@@ -0,0 +1,8 @@
+-- Leases that keep a scheduled job to one instance at a time.
+create table scheduler_lock (
+  name varchar(64) not null,
+  locked_until datetime(6) not null,
+  locked_by varchar(255) not null,
+  primary key (name)
+) engine=InnoDB;
+insert into scheduler_lock values ('order-detail-refresher', '1970-01-01 00:00:00', '');
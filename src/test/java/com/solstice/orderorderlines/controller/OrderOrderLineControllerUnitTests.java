@@ -2,40 +2,54 @@ package com.solstice.orderorderlines.controller;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.solstice.orderorderlines.model.Address;
 import com.solstice.orderorderlines.model.Order;
+import com.solstice.orderorderlines.model.OrderBatchResult;
 import com.solstice.orderorderlines.model.OrderDetail;
 import com.solstice.orderorderlines.model.OrderLineItem;
 import com.solstice.orderorderlines.model.OrderLineSummary;
+import com.solstice.orderorderlines.model.OrderPage;
 import com.solstice.orderorderlines.model.Product;
 import com.solstice.orderorderlines.model.Shipment;
+import com.solstice.orderorderlines.service.OrderDetailReadModel;
 import com.solstice.orderorderlines.service.OrderOrderLineService;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -50,6 +64,10 @@ public class OrderOrderLineControllerUnitTests {
 
   @Mock
   private OrderOrderLineService orderOrderLineService;
+  @Mock
+  private OrderDetailReadModel orderDetailReadModel;
+  @Spy
+  private ObjectMapper objectMapper = new ObjectMapper();
 
   @InjectMocks
   private OrderOrderLineController orderOrderLineController;
@@ -64,18 +82,54 @@ public class OrderOrderLineControllerUnitTests {
 
   @Test
   public void getOrdersSuccessTest() throws Exception {
-    when(orderOrderLineService.getOrders()).thenReturn(getOrders());
+    when(orderOrderLineService.getOrders(null, null)).thenReturn(new OrderPage(getOrders(), null));
     mockMvcPerform(GET, "/orders", 200, toJson(getOrders()));
   }
 
+  @Test
+  public void getOrders_MorePagesAvailable_Code200SetsNextCursorHeader() throws Exception {
+    when(orderOrderLineService.getOrders("Mg", 2)).thenReturn(new OrderPage(getOrders(), "NA"));
+    mockMvc.perform(get("/orders?cursor=Mg&size=2"))
+        .andExpect(status().is(200))
+        .andExpect(header().string(OrderOrderLineController.NEXT_CURSOR_HEADER, "NA"))
+        .andExpect(content().string(toJson(getOrders())));
+  }
+
+  @Test
+  public void getOrders_LastPage_Code200WithoutNextCursorHeader() throws Exception {
+    when(orderOrderLineService.getOrders("NA", null)).thenReturn(new OrderPage(getOrders(), null));
+    mockMvc.perform(get("/orders?cursor=NA"))
+        .andExpect(status().is(200))
+        .andExpect(header().doesNotExist(OrderOrderLineController.NEXT_CURSOR_HEADER));
+  }
+
   @Test
   public void getOrdersFailureTest() throws Exception {
     mockMvcPerform(GET, "/orders", 404, "Resource not found");
   }
 
+  @Test
+  public void exportOrders_OrdersFound_Code200StreamsOneOrderPerLine() throws Exception {
+    doAnswer(invocation -> {
+      Consumer<Order> consumer = invocation.getArgument(0);
+      getOrders().forEach(consumer);
+      return null;
+    }).when(orderOrderLineService).exportOrders(any());
+
+    MvcResult result = mockMvc.perform(get("/orders/export"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().is(200))
+        .andExpect(content().contentType(OrderOrderLineController.NDJSON_VALUE))
+        .andExpect(content().string(
+            toJson(getOrder1()) + "\n" + toJson(getOrder2()) + "\n"));
+  }
+
   @Test
   public void getOrdersByAccountId_ValidId_Code200ReturnsListOfOrders() throws Exception {
-    when(orderOrderLineService.getOrdersByAccountId(1)).thenReturn(getOrders());
+    when(orderOrderLineService.getOrdersByAccountId(1, null, null))
+        .thenReturn(new OrderPage(getOrders(), null));
     mockMvcPerform(GET, "/orders?accountId=1", 200, toJson(getOrders()));
   }
 
@@ -86,10 +140,27 @@ public class OrderOrderLineControllerUnitTests {
 
   @Test
   public void getOrderDetails_ValidId_Code200ReturnsListOfOrderDetails() throws Exception {
-    when(orderOrderLineService.getOrderDetails(1)).thenReturn(getOrderDetails());
+    when(orderDetailReadModel.getOrderDetails(eq(1L), any())).thenReturn(getOrderDetails());
     mockMvcPerform(GET, "/orders/1", 200, toJson(getOrderDetails()));
   }
 
+  @Test
+  public void getOrderDetails_ETagMatches_Code304() throws Exception {
+    stubOrderDetailsWithETag("2-3-7-5");
+    mockMvc.perform(get("/orders/1").header("If-None-Match", "\"2-3-7-5\""))
+        .andExpect(status().is(304))
+        .andExpect(header().string("ETag", "\"2-3-7-5\""));
+  }
+
+  @Test
+  public void getOrderDetails_ETagChanged_Code200WithNewETag() throws Exception {
+    stubOrderDetailsWithETag("2-3-7-6");
+    mockMvc.perform(get("/orders/1").header("If-None-Match", "\"2-3-7-5\""))
+        .andExpect(status().is(200))
+        .andExpect(header().string("ETag", "\"2-3-7-6\""))
+        .andExpect(content().string(toJson(getOrderDetails())));
+  }
+
   @Test
   public void getOrderDetails_InvalidId_Code404() throws Exception {
     mockMvcPerform(GET, "/orders/-1", 404, "Resource not found");
@@ -102,6 +173,16 @@ public class OrderOrderLineControllerUnitTests {
     mockMvcPerform(POST, "/orders", toJson(new Order()), 201, toJson(new Order()));
   }
 
+  @Test
+  public void postOrderBatch_ValidJson_Code200ReturnsPerOrderResults() throws Exception {
+    List<OrderBatchResult> results = Arrays.asList(
+        OrderBatchResult.created(0, getOrder1()),
+        OrderBatchResult.rejected(1, "Order must have orderLineItems"));
+    when(orderOrderLineService.createOrders(any())).thenReturn(results);
+    mockMvcPerform(POST, "/orders/batch", toJson(Arrays.asList(getOrder1(), new Order())),
+        200, toJson(results));
+  }
+
   @Test
   public void postOrderFailureTest() throws Exception {
     mockMvcPerform(POST, "/orders", toJson(new Order()), 400, "Could not create order");
@@ -145,6 +226,14 @@ public class OrderOrderLineControllerUnitTests {
     mockMvcPerform(GET, "/orders/1/lines", 200, toJson(Arrays.asList(new OrderLineItem())));
   }
 
+  @Test
+  public void getOrderLines_ETagMatches_Code304WithoutReadingLines() throws Exception {
+    when(orderOrderLineService.getOrderETag(1)).thenReturn("1-3");
+    mockMvc.perform(get("/orders/1/lines").header("If-None-Match", "\"1-3\""))
+        .andExpect(status().is(304));
+    verify(orderOrderLineService, never()).getOrderLineItems(anyLong());
+  }
+
   @Test
   public void getOrderLinesNotFoundTest() throws Exception {
     mockMvcPerform(GET, "/orders/1/lines", 404, "Resource not found");
@@ -252,6 +341,11 @@ public class OrderOrderLineControllerUnitTests {
     }
   }
 
+  private void stubOrderDetailsWithETag(String eTag) {
+    when(orderDetailReadModel.getOrderDetails(eq(1L), any())).thenAnswer(invocation ->
+        invocation.<Predicate<String>>getArgument(1).test(eTag) ? null : getOrderDetails());
+  }
+
   private List<OrderDetail> getOrderDetails() {
     List<OrderDetail> orderDetails = new ArrayList<>();
     Address address = new Address(
@@ -263,7 +357,7 @@ public class OrderOrderLineControllerUnitTests {
         "United States"
     );
 
-    Product product = new Product("test", 2.50);
+    Product product = new Product("test", 250);
 
     List<Shipment> shipments = new ArrayList<>();
     Shipment testShipment = new Shipment(
@@ -344,14 +438,14 @@ public class OrderOrderLineControllerUnitTests {
   }
 
   private OrderLineItem getOrderLineItem1() {
-    return new OrderLineItem(1, 3, 25.00, 1);
+    return new OrderLineItem(1, 3, 2500, 1);
   }
 
   private OrderLineItem getOrderLineItem2() {
-    return new OrderLineItem(2, 5, 15.00, 2);
+    return new OrderLineItem(2, 5, 1500, 2);
   }
 
   private OrderLineItem getOrderLineItem3() {
-    return new OrderLineItem(3, 8, 40.00, 3);
+    return new OrderLineItem(3, 8, 4000, 3);
   }
 }
@@ -0,0 +1,115 @@
+package com.solstice.orderorderlines.dao;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+import com.github.springtestdbunit.DbUnitTestExecutionListener;
+import com.github.springtestdbunit.annotation.DatabaseSetup;
+import com.solstice.orderorderlines.model.Order;
+import com.solstice.orderorderlines.model.OrderDetail;
+import com.solstice.orderorderlines.model.OrderDetailSnapshot;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.support.DependencyInjectionTestExecutionListener;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@TestExecutionListeners({DependencyInjectionTestExecutionListener.class,
+    DbUnitTestExecutionListener.class})
+@DatabaseSetup("classpath:test-dataset.xml")
+public class OrderDetailSnapshotRepositoryTest {
+
+  @Autowired
+  private OrderDetailSnapshotRepository orderDetailSnapshotRepository;
+
+  @Test
+  public void findAllByAccountId_SnapshotFound_ReturnsStoredDetail() {
+    List<OrderDetailSnapshot> snapshots = orderDetailSnapshotRepository
+        .findAllByAccountIdOrderByOrderDateAscOrderNumberAsc(1);
+
+    assertThat(snapshots.size(), is(1));
+    OrderDetail orderDetail = snapshots.get(0).getDetail();
+    assertThat(orderDetail.getOrderNumber(), is(2L));
+    assertThat(orderDetail.getTotalPrice(), is(2160L));
+    assertThat(orderDetail.getOrderLineItems().get(0).getProductName(), is("Product 2"));
+    assertThat(orderDetail.getRefreshedAt(), is(LocalDateTime.of(2018, 9, 12, 15, 0)));
+  }
+
+  @Test
+  public void findStampByAccountId_SnapshotFound_SummarizesSnapshots() {
+    OrderDetailSnapshotStamp stamp = orderDetailSnapshotRepository.findStampByAccountId(1);
+
+    assertThat(stamp.getCount(), is(1L));
+    assertThat(stamp.getOrderNumberSum(), is(2L));
+    assertThat(stamp.getRevisionSum(), is(0L));
+    assertThat(stamp.getVersionSum(), is(0L));
+  }
+
+  @Test
+  public void findStampByAccountId_NoSnapshots_CountIsZero() {
+    assertThat(orderDetailSnapshotRepository.findStampByAccountId(2).getCount(), is(0L));
+  }
+
+  @Test
+  public void findOrderNumbersRefreshedBefore_SnapshotIsOlder_ReturnsItsOrderNumber() {
+    assertThat(orderDetailSnapshotRepository.findOrderNumbersRefreshedBefore(
+        LocalDateTime.of(2018, 9, 13, 0, 0), PageRequest.of(0, 10)),
+        is(Collections.singletonList(2L)));
+    assertTrue(orderDetailSnapshotRepository.findOrderNumbersRefreshedBefore(
+        LocalDateTime.of(2018, 9, 12, 0, 0), PageRequest.of(0, 10)).isEmpty());
+  }
+
+  @Test
+  public void expireByOrderNumberIn_SnapshotIsNewer_BackdatesIt() {
+    LocalDateTime due = LocalDateTime.of(2018, 9, 12, 0, 0);
+
+    assertThat(orderDetailSnapshotRepository.expireByOrderNumberIn(
+        Collections.singletonList(2L), due), is(1));
+    assertThat(orderDetailSnapshotRepository.findOrderNumbersRefreshedBefore(
+        due.plusSeconds(1), PageRequest.of(0, 10)), is(Collections.singletonList(2L)));
+    assertThat(orderDetailSnapshotRepository.findById(2L).get().getVersion(), is(1L));
+  }
+
+  @Test
+  public void saveAllUnlessNewer_StoredRevisionIsNewer_KeepsStoredSnapshot() {
+    orderDetailSnapshotRepository.saveAll(Collections.singletonList(getSnapshot(3)));
+
+    assertTrue(orderDetailSnapshotRepository
+        .saveAllUnlessNewer(Collections.singletonList(getSnapshot(2))).isEmpty());
+    assertThat(orderDetailSnapshotRepository.findById(2L).get().getRevision(), is(3L));
+  }
+
+  @Test
+  public void saveAllUnlessNewer_RevisionIsNewer_SavesSnapshot() {
+    assertThat(orderDetailSnapshotRepository
+        .saveAllUnlessNewer(Collections.singletonList(getSnapshot(1))).size(), is(1));
+    assertThat(orderDetailSnapshotRepository.findById(2L).get().getRevision(), is(1L));
+  }
+
+  @Test
+  public void saveAllUnlessNewer_SameRevisionSavedTwice_BumpsVersionEachTime() {
+    orderDetailSnapshotRepository.saveAllUnlessNewer(Collections.singletonList(getSnapshot(0)));
+    orderDetailSnapshotRepository.saveAllUnlessNewer(Collections.singletonList(getSnapshot(0)));
+
+    assertThat(orderDetailSnapshotRepository.findById(2L).get().getVersion(), is(2L));
+    assertThat(orderDetailSnapshotRepository.findStampByAccountId(1).getVersionSum(), is(2L));
+  }
+
+  private OrderDetailSnapshot getSnapshot(long revision) {
+    Order order = new Order(1, LocalDateTime.of(2018, 9, 10, 3, 0), 2, new ArrayList<>());
+    order.setOrderNumber(2);
+    order.setRevision(revision);
+    return new OrderDetailSnapshot(order,
+        new OrderDetail(2, null, 2160, new ArrayList<>(), new ArrayList<>()),
+        LocalDateTime.of(2018, 9, 13, 0, 0));
+  }
+}
@@ -33,7 +33,7 @@ public class OrderLineItemRepositoryTest {
 
     assertThat(orderLineItem, is(notNullValue()));
     assertThat(orderLineItem.getProductId(), is(1L));
-    assertThat(orderLineItem.getPrice(), is(2.50));
+    assertThat(orderLineItem.getPrice(), is(250L));
     assertThat(orderLineItem.getQuantity(), is(2));
     assertThat(orderLineItem.getShipmentId(), is(1L));
   }
@@ -2,22 +2,32 @@ package com.solstice.orderorderlines.dao;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.*;
 
 import com.github.springtestdbunit.DbUnitTestExecutionListener;
 import com.github.springtestdbunit.annotation.DatabaseSetup;
 import com.solstice.orderorderlines.model.Order;
 import com.solstice.orderorderlines.model.OrderLineItem;
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.persistence.EntityManagerFactory;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.TestExecutionListeners;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.context.support.DependencyInjectionTestExecutionListener;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @RunWith(SpringRunner.class)
 @DataJpaTest
@@ -28,6 +38,19 @@ public class OrderRepositoryTest {
 
   @Autowired
   private OrderRepository orderRepository;
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  private TransactionTemplate transactionTemplate;
+
+  @Before
+  public void setup() {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    // The dataset is reloaded behind Hibernate's back before every test.
+    entityManagerFactory.getCache().evictAll();
+  }
 
   @Test
   public void findOrderLineItemsById_ValidId_ReturnsOrderLineItemsList() {
@@ -70,4 +93,144 @@ public class OrderRepositoryTest {
     assertThat(orders, is(notNullValue()));
     assertTrue(orders.isEmpty());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void findAllWithOrderLineItemsByAccountIdOrderByOrderDate_ValidId_ReturnsOrdersWithLineItems() {
+    List<Order> orders = orderRepository.findAllWithOrderLineItemsByAccountIdOrderByOrderDate(1);
+
+    assertThat(orders, is(notNullValue()));
+    assertThat(orders.size(), is(2));
+    assertThat(orders.get(0).getOrderNumber(), is(2L));
+    assertThat(orders.get(0).getOrderLineItems().size(), is(1));
+    assertThat(orders.get(1).getOrderNumber(), is(1L));
+    assertThat(orders.get(1).getOrderLineItems().size(), is(2));
+  }
+
+  @Test
+  public void findAllWithOrderLineItemsByAccountIdOrderByOrderDate_InvalidId_ReturnsEmptyListOfOrders() {
+    List<Order> orders = orderRepository.findAllWithOrderLineItemsByAccountIdOrderByOrderDate(-1);
+
+    assertThat(orders, is(notNullValue()));
+    assertTrue(orders.isEmpty());
+  }
+
+  @Test
+  public void findOrderNumbersAfter_FirstPage_ReturnsOrderNumbersUpToLimit() {
+    List<Long> orderNumbers = orderRepository.findOrderNumbersAfter(0, PageRequest.of(0, 2));
+
+    assertThat(orderNumbers, is(Arrays.asList(1L, 2L)));
+  }
+
+  @Test
+  public void findOrderNumbersAfter_LastPage_ReturnsRemainingOrderNumbers() {
+    List<Long> orderNumbers = orderRepository.findOrderNumbersAfter(2, PageRequest.of(0, 2));
+
+    assertThat(orderNumbers, is(Arrays.asList(3L)));
+  }
+
+  @Test
+  public void findOrderNumbersByAccountId_ValidId_ReturnsOrderNumbersOrderedByOrderDate() {
+    List<Long> orderNumbers = orderRepository.findOrderNumbersByAccountId(1, PageRequest.of(0, 10));
+
+    assertThat(orderNumbers, is(Arrays.asList(2L, 1L)));
+  }
+
+  @Test
+  public void findOrderNumbersByAccountIdAfter_AfterFirstOrder_ReturnsLaterOrderNumbers() {
+    List<Long> orderNumbers = orderRepository.findOrderNumbersByAccountIdAfter(
+        1, LocalDateTime.of(2018, 9, 10, 3, 0), 2, PageRequest.of(0, 10));
+
+    assertThat(orderNumbers, is(Arrays.asList(1L)));
+  }
+
+  @Test
+  public void findAllWithOrderLineItemsByOrderNumberIn_ValidIds_ReturnsOrdersWithLineItems() {
+    List<Order> orders = orderRepository
+        .findAllWithOrderLineItemsByOrderNumberIn(Arrays.asList(1L, 3L));
+
+    assertThat(orders.size(), is(2));
+    orders.forEach(order -> assertFalse(order.getOrderLineItems().isEmpty()));
+  }
+
+  @Test
+  public void streamAllWithOrderLineItems_OrdersFound_StreamsEachOrderOnceWithLineItems() {
+    List<Order> orders = transactionTemplate.execute(status -> {
+      try (Stream<Order> stream = orderRepository.streamAllWithOrderLineItems()) {
+        return stream.collect(Collectors.toList());
+      }
+    });
+
+    assertThat(orders.size(), is(3));
+    assertThat(orders.get(0).getOrderNumber(), is(1L));
+    assertThat(orders.get(0).getOrderLineItems().size(), is(2));
+    assertThat(orders.get(1).getOrderNumber(), is(2L));
+    assertThat(orders.get(2).getOrderNumber(), is(3L));
+  }
+
+  @Test
+  public void findForUpdateByOrderNumber_LineItemChanged_StoresNewOrderTotalAndRevision() {
+    transactionTemplate.execute(status -> {
+      Order order = orderRepository.findForUpdateByOrderNumber(1);
+      order.getOrderLineItems().stream()
+          .filter(orderLineItem -> orderLineItem.getId() == 4)
+          .forEach(orderLineItem -> orderLineItem.setQuantity(1));
+      order.setTotalPrice();
+      order.incrementRevision();
+      return null;
+    });
+
+    assertThat(orderRepository.findByOrderNumber(1).getTotalPrice(), is(1040L));
+    assertThat(orderRepository.findRevisionByOrderNumber(1), is(4L));
+  }
+
+  @Test
+  public void findRevisionByOrderNumber_InvalidId_ReturnsNull() {
+    assertThat(orderRepository.findRevisionByOrderNumber(-1), is(nullValue()));
+  }
+
+  @Test
+  public void findByOrderNumber_ValidId_ReadsStoredTotalPrice() {
+    Order order = orderRepository.findByOrderNumber(2);
+
+    assertThat(order.getTotalPrice(), is(2160L));
+  }
+
+  @Test
+  public void findByOrderNumber_OrderRead_IsKeptInSecondLevelCache() {
+    orderRepository.findByOrderNumber(1);
+    orderRepository.findOrderLineItemsByOrderNumber(1);
+
+    assertTrue(entityManagerFactory.getCache().contains(Order.class, 1L));
+    assertTrue(entityManagerFactory.getCache().contains(OrderLineItem.class, 4L));
+  }
+
+  @Test
+  public void findForUpdateByOrderNumber_OrderWritten_KeepsOtherOrdersCached() {
+    orderRepository.findByOrderNumber(1);
+    orderRepository.findByOrderNumber(2);
+
+    transactionTemplate.execute(status -> {
+      orderRepository.findForUpdateByOrderNumber(1).incrementRevision();
+      return null;
+    });
+
+    assertTrue(entityManagerFactory.getCache().contains(Order.class, 2L));
+    assertThat(orderRepository.findByOrderNumber(1).getRevision(), is(4L));
+  }
+
+  @Test
+  public void findOrderNumbersWithoutDetailSnapshot_SomeOrdersHaveSnapshots_ReturnsTheOthers() {
+    List<Long> orderNumbers = orderRepository
+        .findOrderNumbersWithoutDetailSnapshot(PageRequest.of(0, 10));
+
+    assertThat(orderNumbers, is(Arrays.asList(1L, 3L)));
+  }
+
+  @Test
+  public void findStampByAccountId_OrdersFound_SummarizesOrderNumbers() {
+    OrderNumbersStamp stamp = orderRepository.findStampByAccountId(1);
+
+    assertThat(stamp.getCount(), is(2L));
+    assertThat(stamp.getOrderNumberSum(), is(3L));
+  }
+}
@@ -0,0 +1,79 @@
+package com.solstice.orderorderlines.dao;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.util.Arrays;
+import javax.sql.DataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@RunWith(JUnit4.class)
+public class ReplicaRoutingDataSourceTest {
+
+  private Connection primaryConnection;
+  private Connection replica1Connection;
+  private Connection replica2Connection;
+  private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+  @Before
+  public void setup() throws Exception {
+    primaryConnection = mock(Connection.class);
+    replica1Connection = mock(Connection.class);
+    replica2Connection = mock(Connection.class);
+    replicaRoutingDataSource = new ReplicaRoutingDataSource(
+        dataSource(primaryConnection),
+        Arrays.asList(dataSource(replica1Connection), dataSource(replica2Connection)));
+    replicaRoutingDataSource.afterPropertiesSet();
+  }
+
+  @After
+  public void teardown() {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+  }
+
+  @Test
+  public void getConnection_NoReadOnlyTransaction_UsesPrimary() throws Exception {
+    assertThat(replicaRoutingDataSource.getConnection(), is(primaryConnection));
+  }
+
+  @Test
+  public void getConnection_ReadOnlyTransaction_AlternatesReplicas() throws Exception {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+    assertThat(replicaRoutingDataSource.getConnection(), is(replica1Connection));
+    assertThat(replicaRoutingDataSource.getConnection(), is(replica2Connection));
+    assertThat(replicaRoutingDataSource.getConnection(), is(replica1Connection));
+  }
+
+  @Test
+  public void getConnection_PinnedToPrimary_UsesPrimaryInReadOnlyTransaction() throws Exception {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+    Connection pinned = ReplicaRoutingDataSource.onPrimary(this::getConnection);
+
+    assertThat(pinned, is(primaryConnection));
+    assertThat(replicaRoutingDataSource.getConnection(), is(replica1Connection));
+  }
+
+  private Connection getConnection() {
+    try {
+      return replicaRoutingDataSource.getConnection();
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static DataSource dataSource(Connection connection) throws Exception {
+    DataSource dataSource = mock(DataSource.class);
+    when(dataSource.getConnection()).thenReturn(connection);
+    return dataSource;
+  }
+}
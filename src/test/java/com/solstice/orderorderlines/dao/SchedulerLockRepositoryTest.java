@@ -0,0 +1,52 @@
+package com.solstice.orderorderlines.dao;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.time.LocalDateTime;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class SchedulerLockRepositoryTest {
+
+  private static final String LOCK_NAME = "order-detail-refresher";
+  private static final LocalDateTime NOW = LocalDateTime.of(2018, 9, 10, 12, 0);
+
+  @Autowired
+  private SchedulerLockRepository schedulerLockRepository;
+
+  @Test
+  public void lock_NotHeld_TakesLease() {
+    assertThat(schedulerLockRepository.lock(LOCK_NAME, "a", NOW, NOW.plusMinutes(5)), is(1));
+  }
+
+  @Test
+  public void lock_HeldByAnotherInstance_IsRefused() {
+    schedulerLockRepository.lock(LOCK_NAME, "a", NOW, NOW.plusMinutes(5));
+
+    assertThat(schedulerLockRepository.lock(LOCK_NAME, "b", NOW.plusMinutes(1),
+        NOW.plusMinutes(6)), is(0));
+  }
+
+  @Test
+  public void lock_LeaseRanOut_TakesLease() {
+    schedulerLockRepository.lock(LOCK_NAME, "a", NOW, NOW.plusMinutes(5));
+
+    assertThat(schedulerLockRepository.lock(LOCK_NAME, "b", NOW.plusMinutes(5),
+        NOW.plusMinutes(10)), is(1));
+  }
+
+  @Test
+  public void unlock_ByHolder_FreesLease() {
+    schedulerLockRepository.lock(LOCK_NAME, "a", NOW, NOW.plusMinutes(5));
+    schedulerLockRepository.unlock(LOCK_NAME, "a", NOW.plusMinutes(1));
+
+    assertThat(schedulerLockRepository.lock(LOCK_NAME, "b", NOW.plusMinutes(1),
+        NOW.plusMinutes(6)), is(1));
+  }
+}
@@ -0,0 +1,69 @@
+package com.solstice.orderorderlines.dao;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * The schema comes from the Flyway migrations and Hibernate validates the mappings against it
+ * when the context starts. These check that the hot lookups are planned on their indexes.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class SchemaMigrationTest {
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Test
+  public void ordersOfAccount_UseAccountDateIndex() {
+    assertThat(explain("select order_number from orders where account_id = 1 "
+            + "order by order_date, order_number"),
+        containsString("IDX_ORDERS_ACCOUNT_DATE"));
+  }
+
+  @Test
+  public void ordersOfAccountAfterCursor_UseAccountDateIndex() {
+    assertThat(explain("select order_number from orders where account_id = 1 "
+            + "and (order_date > timestamp '2018-09-10 00:00:00' "
+            + "or (order_date = timestamp '2018-09-10 00:00:00' and order_number > 2)) "
+            + "order by order_date, order_number"),
+        containsString("IDX_ORDERS_ACCOUNT_DATE"));
+  }
+
+  @Test
+  public void lineItemsOfOrder_UseOrderIndex() {
+    assertThat(explain("select id from order_line_item where order_id = 1"),
+        containsString("IDX_ORDER_LINE_ITEM_ORDER"));
+  }
+
+  @Test
+  public void lineItemsOfShipment_UseShipmentIndex() {
+    assertThat(explain("select id from order_line_item where shipment_id = 1"),
+        containsString("IDX_ORDER_LINE_ITEM_SHIPMENT"));
+  }
+
+  @Test
+  public void detailSnapshotsOfAccount_UseAccountIndex() {
+    assertThat(explain("select detail from order_detail_snapshot where account_id = 1 "
+            + "order by order_date, order_number"),
+        containsString("IDX_ORDER_DETAIL_SNAPSHOT_ACCOUNT"));
+  }
+
+  @Test(expected = DataIntegrityViolationException.class)
+  public void orderWithoutOrderDate_IsRejected() {
+    jdbcTemplate.update("insert into orders (order_number, account_id, order_date, "
+        + "shipping_address_id, total_price, revision) values (100, 1, null, 1, 0, 0)");
+  }
+
+  private String explain(String sql) {
+    return jdbcTemplate.queryForObject("explain " + sql, String.class);
+  }
+}
@@ -0,0 +1,101 @@
+package com.solstice.orderorderlines.external;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.solstice.orderorderlines.config.ClientCacheProperties;
+import com.solstice.orderorderlines.model.Address;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CachingAccountAddressClientTest {
+
+  @Mock
+  private AccountAddressClient accountAddressClient;
+
+  private LastKnownGoodStore lastKnownGoodStore;
+  private CachingAccountAddressClient cachingAccountAddressClient;
+
+  @Before
+  public void setup() {
+    lastKnownGoodStore = new LastKnownGoodStore(
+        new ClientCacheProperties(), new SimpleMeterRegistry());
+    cachingAccountAddressClient = new CachingAccountAddressClient(
+        accountAddressClient,
+        new AccountAddressFallback(lastKnownGoodStore),
+        new ClientCacheProperties(),
+        new SimpleMeterRegistry());
+  }
+
+  @Test
+  public void getAddress_RepeatedLookups_CallsAddressServiceOncePerKey() {
+    when(accountAddressClient.getAddressByAccountIdAndAddressId(1, 1)).thenReturn(getAddress());
+    when(accountAddressClient.getAddressByAccountIdAndAddressId(2, 1)).thenReturn(getAddress());
+
+    cachingAccountAddressClient.getAddressByAccountIdAndAddressId(1, 1);
+    cachingAccountAddressClient.getAddressByAccountIdAndAddressId(1, 1);
+    cachingAccountAddressClient.getAddressByAccountIdAndAddressId(2, 1);
+
+    verify(accountAddressClient, times(1)).getAddressByAccountIdAndAddressId(1, 1);
+    verify(accountAddressClient, times(1)).getAddressByAccountIdAndAddressId(2, 1);
+  }
+
+  @Test
+  public void getAddress_AddressServiceIsDown_FallbackIsNotCached() {
+    when(accountAddressClient.getAddressByAccountIdAndAddressId(1, 1))
+        .thenReturn(new AccountAddressFallback(lastKnownGoodStore)
+            .getAddressByAccountIdAndAddressId(1, 1))
+        .thenReturn(getAddress());
+
+    Address first = cachingAccountAddressClient.getAddressByAccountIdAndAddressId(1, 1);
+    Address second = cachingAccountAddressClient.getAddressByAccountIdAndAddressId(1, 1);
+
+    assertTrue(first.isFallback());
+    assertThat(first.getStreet(), is(equalTo("")));
+    assertFalse(second.isFallback());
+    assertThat(second.getStreet(), is(equalTo("111 N Canal St")));
+    verify(accountAddressClient, times(2)).getAddressByAccountIdAndAddressId(1, 1);
+  }
+
+  @Test
+  public void getAddress_AddressServiceIsDown_ServesLastKnownGoodAddress() {
+    lastKnownGoodStore.putAddress(1, 1, getAddress());
+
+    Address address = cachingAccountAddressClient.getAddressByAccountIdAndAddressId(1, 1);
+    Address otherAccount = cachingAccountAddressClient.getAddressByAccountIdAndAddressId(2, 1);
+
+    assertTrue(address.isFallback());
+    assertThat(address.getStreet(), is(equalTo("111 N Canal St")));
+    assertThat(otherAccount.getStreet(), is(equalTo("")));
+  }
+
+  @Test
+  public void getAddress_AddressNotFound_ReturnsFallbackAddress() {
+    Address address = cachingAccountAddressClient.getAddressByAccountIdAndAddressId(1, 5);
+
+    assertTrue(address.isFallback());
+    assertThat(address.getStreet(), is(equalTo("")));
+  }
+
+  private Address getAddress() {
+    return new Address(
+        "111 N Canal St",
+        "700",
+        "Chicago",
+        "IL",
+        "60606",
+        "United States"
+    );
+  }
+}
@@ -0,0 +1,142 @@
+package com.solstice.orderorderlines.external;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.netflix.hystrix.exception.HystrixBadRequestException;
+import com.solstice.orderorderlines.config.ClientCacheProperties;
+import com.solstice.orderorderlines.config.ClientCollapsingProperties;
+import com.solstice.orderorderlines.model.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CachingProductClientTest {
+
+  @Mock
+  private ProductClient productClient;
+
+  private MeterRegistry meterRegistry;
+  private LastKnownGoodStore lastKnownGoodStore;
+  private CachingProductClient cachingProductClient;
+
+  @Before
+  public void setup() {
+    meterRegistry = new SimpleMeterRegistry();
+    lastKnownGoodStore = new LastKnownGoodStore(new ClientCacheProperties(), meterRegistry);
+    cachingProductClient = new CachingProductClient(
+        productClient,
+        new ProductClientFallback(lastKnownGoodStore),
+        new ProductLookupCollapser(productClient, new ClientCollapsingProperties(), meterRegistry),
+        new ClientCacheProperties(),
+        meterRegistry);
+  }
+
+  @Test
+  public void getProductById_RepeatedLookups_CallsProductServiceOnce() {
+    when(productClient.getProductById(1)).thenReturn(new Product(1, "Test", 250));
+
+    cachingProductClient.getProductById(1);
+    Product product = cachingProductClient.getProductById(1);
+
+    assertThat(product.getName(), is(equalTo("Test")));
+    verify(productClient, times(1)).getProductById(1);
+  }
+
+  @Test
+  public void getProductById_ProductServiceIsDown_FallbackIsNotCached() {
+    Product fallback = new ProductClientFallback(lastKnownGoodStore).getProductById(1);
+    when(productClient.getProductById(1))
+        .thenReturn(fallback)
+        .thenReturn(new Product(1, "Test", 250));
+
+    Product first = cachingProductClient.getProductById(1);
+    Product second = cachingProductClient.getProductById(1);
+
+    assertTrue(first.isFallback());
+    assertThat(first.getName(), is(equalTo("")));
+    assertFalse(second.isFallback());
+    assertThat(second.getName(), is(equalTo("Test")));
+    verify(productClient, times(2)).getProductById(1);
+  }
+
+  @Test
+  public void getProductById_ProductServiceIsDown_ServesLastKnownGoodProduct() {
+    lastKnownGoodStore.putProduct(new Product(1, "Test", 250));
+    when(productClient.getProductById(1))
+        .thenReturn(new ProductClientFallback(lastKnownGoodStore).getProductById(1));
+
+    Product product = cachingProductClient.getProductById(1);
+
+    assertTrue(product.isFallback());
+    assertThat(product.getName(), is(equalTo("Test")));
+    assertThat(product.getPrice(), is(250L));
+  }
+
+  @Test
+  public void getProductsByIds_PartiallyCached_LooksUpOnlyMissingProducts() {
+    when(productClient.getProductById(1)).thenReturn(new Product(1, "One", 100));
+    when(productClient.getProductsByIds(Collections.singletonList(2L)))
+        .thenReturn(Collections.singletonList(new Product(2, "Two", 200)));
+
+    cachingProductClient.getProductById(1);
+    List<Product> products = cachingProductClient.getProductsByIds(Arrays.asList(1L, 2L));
+
+    assertThat(products.size(), is(2));
+    assertThat(products.get(0).getName(), is(equalTo("One")));
+    assertThat(products.get(1).getName(), is(equalTo("Two")));
+    verify(productClient, times(1)).getProductsByIds(Collections.singletonList(2L));
+  }
+
+  @Test
+  public void getProductsByIds_UnknownProduct_ReturnsNoProduct() {
+    when(productClient.getProductsByIds(Arrays.asList(2L, 3L)))
+        .thenReturn(Collections.singletonList(new Product(2, "Two", 200)));
+
+    List<Product> products = cachingProductClient.getProductsByIds(Arrays.asList(2L, 3L));
+
+    assertThat(products.size(), is(1));
+    assertThat(products.get(0).getId(), is(2L));
+  }
+
+  @Test
+  public void getProductsByIds_CallFailsWithoutFallback_ReturnsFallbackProducts() {
+    when(productClient.getProductsByIds(Collections.singletonList(3L))).thenReturn(null);
+
+    List<Product> products = cachingProductClient.getProductsByIds(Collections.singletonList(3L));
+
+    assertThat(products.size(), is(1));
+    assertTrue(products.get(0).isFallback());
+    assertThat(products.get(0).getId(), is(3L));
+  }
+
+  @Test
+  public void getProductById_ProductServiceAnswers404_ReturnsNull() {
+    when(productClient.getProductById(3))
+        .thenThrow(new HystrixBadRequestException("product-service has no such product"));
+
+    assertThat(cachingProductClient.getProductById(3), is(nullValue()));
+  }
+
+  @Test
+  public void constructor_RegistersCacheMetrics() {
+    assertFalse(meterRegistry.find("cache.gets").tags("cache", "products").meters().isEmpty());
+    assertFalse(meterRegistry.find("cache.evictions").tags("cache", "products").meters()
+        .isEmpty());
+  }
+}
@@ -0,0 +1,181 @@
+package com.solstice.orderorderlines.external;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import com.solstice.orderorderlines.config.HedgingProperties.Spec;
+import com.solstice.orderorderlines.model.Product;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class HedgeTest {
+
+  private MeterRegistry meterRegistry;
+  private ExecutorService executor;
+  private Spec spec;
+
+  @Before
+  public void setup() {
+    meterRegistry = new SimpleMeterRegistry();
+    executor = Executors.newCachedThreadPool();
+    spec = new Spec();
+    spec.setMinDelay(Duration.ofMillis(20));
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void call_FirstAttemptFast_DoesNotHedge() throws Throwable {
+    AtomicInteger attempts = new AtomicInteger();
+    Hedge hedge = newHedge(100);
+
+    Object result = hedge.call(() -> "attempt " + attempts.incrementAndGet(), executor);
+
+    assertThat(result, is("attempt 1"));
+    assertThat(attempts.get(), is(1));
+    assertThat(count("fired"), is(0.0));
+  }
+
+  @Test
+  public void call_FirstAttemptSlow_SecondAttemptWins() throws Throwable {
+    AtomicInteger attempts = new AtomicInteger();
+    Hedge hedge = newHedge(100);
+
+    Object result = hedge.call(() -> {
+      if (attempts.incrementAndGet() == 1) {
+        Thread.sleep(2000);
+        return "slow";
+      }
+      return "fast";
+    }, executor);
+
+    assertThat(result, is("fast"));
+    assertThat(count("fired"), is(1.0));
+    assertThat(count("won"), is(1.0));
+  }
+
+  @Test
+  public void call_SecondAttemptFails_WaitsForFirstAttempt() throws Throwable {
+    AtomicInteger attempts = new AtomicInteger();
+    Hedge hedge = newHedge(100);
+
+    Object result = hedge.call(() -> {
+      if (attempts.incrementAndGet() == 1) {
+        Thread.sleep(100);
+        return "slow";
+      }
+      throw new IllegalStateException("instance down");
+    }, executor);
+
+    assertThat(result, is("slow"));
+    assertThat(count("fired"), is(1.0));
+    assertThat(count("won"), is(0.0));
+  }
+
+  @Test
+  public void call_SecondAttemptFallsBack_WaitsForFirstAttempt() throws Throwable {
+    AtomicInteger attempts = new AtomicInteger();
+    Hedge hedge = newHedge(100);
+
+    Object result = hedge.call(() -> {
+      if (attempts.incrementAndGet() == 1) {
+        Thread.sleep(100);
+        return new Product(1, "Product 1", 250);
+      }
+      return getFallbackProduct();
+    }, executor);
+
+    assertThat(((Product) result).isFallback(), is(false));
+    assertThat(count("fired"), is(1.0));
+    assertThat(count("won"), is(0.0));
+  }
+
+  @Test
+  public void call_BothAttemptsFallBack_ReturnsFallback() throws Throwable {
+    AtomicInteger attempts = new AtomicInteger();
+    Hedge hedge = newHedge(100);
+
+    Object result = hedge.call(() -> {
+      if (attempts.incrementAndGet() == 1) {
+        Thread.sleep(100);
+      }
+      return Collections.singletonList(getFallbackProduct());
+    }, executor);
+
+    assertThat(((List<?>) result).size(), is(1));
+    assertThat(count("fired"), is(1.0));
+    assertThat(count("won"), is(0.0));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void call_FirstAttemptFails_ThrowsItsException() throws Throwable {
+    newHedge(100).call(() -> {
+      throw new IllegalStateException("instance down");
+    }, executor);
+  }
+
+  @Test
+  public void call_BudgetSpent_WaitsForFirstAttempt() throws Throwable {
+    AtomicInteger attempts = new AtomicInteger();
+    Hedge hedge = newHedge(0);
+
+    Object result = hedge.call(() -> {
+      attempts.incrementAndGet();
+      Thread.sleep(100);
+      return "slow";
+    }, executor);
+
+    assertThat(result, is("slow"));
+    assertThat(attempts.get(), is(1));
+    assertThat(count("rejected"), is(1.0));
+  }
+
+  @Test
+  public void hedgeBudget_FivePercent_AllowsOneHedgePerTwentyCalls() {
+    HedgeBudget budget = new HedgeBudget(5);
+    for (int i = 0; i < 19; i++) {
+      budget.recordCall();
+    }
+    assertFalse(budget.tryAcquire());
+
+    budget.recordCall();
+    assertTrue(budget.tryAcquire());
+    assertFalse(budget.tryAcquire());
+  }
+
+  private Hedge newHedge(double budgetPercent) {
+    return new Hedge(spec, new HedgeBudget(budgetPercent),
+        meterRegistry.counter("hedges", "outcome", "fired"),
+        meterRegistry.counter("hedges", "outcome", "won"),
+        meterRegistry.counter("hedges", "outcome", "rejected"));
+  }
+
+  private Product getFallbackProduct() {
+    Product product = new Product(1, "", 0);
+    product.setFallback(true);
+    return product;
+  }
+
+  private double count(String outcome) {
+    Counter counter = meterRegistry.find("hedges").tag("outcome", outcome).counter();
+    return counter == null ? 0 : counter.count();
+  }
+}
@@ -0,0 +1,119 @@
+package com.solstice.orderorderlines.external;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.solstice.orderorderlines.config.ClientCollapsingProperties;
+import com.solstice.orderorderlines.model.Product;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ProductLookupCollapserTest {
+
+  @Mock
+  private ProductClient productClient;
+
+  private ClientCollapsingProperties clientCollapsingProperties;
+  private ExecutorService executor;
+
+  @Before
+  public void setup() {
+    clientCollapsingProperties = new ClientCollapsingProperties();
+    clientCollapsingProperties.getProducts().setWindow(Duration.ofMillis(200));
+    executor = Executors.newFixedThreadPool(8);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void getProductById_ConcurrentLookups_SendsOneBulkCallWithDistinctIds() throws Exception {
+    when(productClient.getProductsByIds(anyCollection())).thenAnswer(invocation -> {
+      Collection<Long> ids = invocation.getArgument(0);
+      return ids.stream().map(id -> new Product(id, "Product " + id, 100))
+          .collect(Collectors.toList());
+    });
+    ProductLookupCollapser collapser = newCollapser();
+
+    List<Future<Product>> lookups = new ArrayList<>();
+    for (long id : new long[] {1, 2, 3, 2}) {
+      lookups.add(executor.submit(() -> collapser.getProductById(id)));
+    }
+
+    assertThat(lookups.get(0).get().getName(), is("Product 1"));
+    assertThat(lookups.get(1).get().getName(), is("Product 2"));
+    assertThat(lookups.get(2).get().getName(), is("Product 3"));
+    assertThat(lookups.get(3).get().getName(), is("Product 2"));
+    verify(productClient, times(1)).getProductsByIds(argThat(ids -> ids.size() == 3));
+  }
+
+  @Test
+  public void getProductById_BatchFull_SendsBeforeWindowEnds() {
+    clientCollapsingProperties.getProducts().setWindow(Duration.ofSeconds(30));
+    clientCollapsingProperties.getProducts().setMaxBatchSize(1);
+    when(productClient.getProductById(1)).thenReturn(new Product(1, "One", 100));
+
+    Product product = newCollapser().getProductById(1);
+
+    assertThat(product.getName(), is("One"));
+    verify(productClient, never()).getProductsByIds(anyCollection());
+  }
+
+  @Test
+  public void getProductById_UnknownProduct_ReturnsNull() throws Exception {
+    when(productClient.getProductsByIds(anyCollection()))
+        .thenReturn(Collections.singletonList(new Product(1, "One", 100)));
+    ProductLookupCollapser collapser = newCollapser();
+
+    Future<Product> known = executor.submit(() -> collapser.getProductById(1));
+    Future<Product> unknown = executor.submit(() -> collapser.getProductById(9));
+
+    assertThat(known.get().getName(), is("One"));
+    assertThat(unknown.get(), is(nullValue()));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void getProductById_ProductServiceFails_ThrowsToCaller() {
+    clientCollapsingProperties.getProducts().setWindow(Duration.ofMillis(1));
+    when(productClient.getProductById(1)).thenThrow(new IllegalStateException("down"));
+
+    newCollapser().getProductById(1);
+  }
+
+  @Test
+  public void getProductById_Disabled_CallsProductServiceDirectly() {
+    clientCollapsingProperties.getProducts().setEnabled(false);
+    when(productClient.getProductById(1)).thenReturn(new Product(1, "One", 100));
+
+    assertThat(newCollapser().getProductById(1).getName(), is("One"));
+  }
+
+  private ProductLookupCollapser newCollapser() {
+    return new ProductLookupCollapser(productClient, clientCollapsingProperties,
+        new SimpleMeterRegistry());
+  }
+}
@@ -0,0 +1,120 @@
+package com.solstice.orderorderlines.metrics;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import com.solstice.orderorderlines.external.ProductClient;
+import com.solstice.orderorderlines.model.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+@RunWith(JUnit4.class)
+public class CallMetricsAspectTest {
+
+  private MeterRegistry meterRegistry;
+  private ProductClient productClient;
+
+  @Before
+  public void setup() {
+    meterRegistry = new SimpleMeterRegistry();
+    AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new StubProductClient());
+    proxyFactory.addInterface(ProductClient.class);
+    proxyFactory.addAspect(new CallMetricsAspect(meterRegistry));
+    productClient = proxyFactory.getProxy();
+  }
+
+  @After
+  public void tearDown() {
+    DownstreamCallCounter.end();
+  }
+
+  @Test
+  public void clientCall_Succeeds_RecordsTimerTaggedByClientAndMethod() {
+    productClient.getProductById(1);
+    productClient.getProductById(2);
+
+    assertThat(meterRegistry.find(CallMetricsAspect.CLIENT_METRIC)
+        .tags("client", "ProductClient", "method", "getProductById", "outcome", "success")
+        .timer().count(), is(2L));
+  }
+
+  @Test
+  public void clientCall_Throws_RecordsTimerWithExceptionOutcome() {
+    try {
+      productClient.getProductById(-1);
+    } catch (IllegalArgumentException expected) {
+      // recorded below
+    }
+
+    assertThat(meterRegistry.find(CallMetricsAspect.CLIENT_METRIC)
+        .tags("outcome", "IllegalArgumentException")
+        .timer().count(), is(1L));
+  }
+
+  @Test
+  public void clientCall_DuringRequest_CountsTowardsRequest() {
+    DownstreamCallCounter.begin();
+    productClient.getProductById(1);
+    productClient.getProductsByIds(Arrays.asList(1L, 2L));
+
+    assertThat(DownstreamCallCounter.end(), is(2));
+  }
+
+  @Test
+  public void clientCall_OnExecutorThread_CountsTowardsSubmittingRequest() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      DownstreamCallCounter.begin();
+      executor.submit(DownstreamCallCounter.taskDecorator()
+          .decorate(() -> productClient.getProductById(1))).get();
+      executor.submit(DownstreamCallCounter.taskDecorator()
+          .decorate(() -> productClient.getProductById(2))).get();
+
+      assertThat(DownstreamCallCounter.end(), is(2));
+      assertThat(executor.submit(() -> DownstreamCallCounter.end()).get(), is(0));
+    } finally {
+      executor.shutdownNow();
+      executor.awaitTermination(1, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  public void clientCall_OutsideRequest_IsOnlyTimed() {
+    productClient.getProductById(1);
+
+    assertThat(DownstreamCallCounter.end(), is(0));
+    assertThat(meterRegistry.find(CallMetricsAspect.FALLBACK_METRIC).timer(), is(nullValue()));
+  }
+
+  private static class StubProductClient implements ProductClient {
+
+    @Override
+    public Product getProductById(long id) {
+      if (id < 0) {
+        throw new IllegalArgumentException("id");
+      }
+      return new Product(id, "Test", 250);
+    }
+
+    @Override
+    public List<Product> getProductsByIds(Collection<Long> ids) {
+      List<Product> products = new ArrayList<>();
+      ids.forEach(id -> products.add(getProductById(id)));
+      return products;
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package com.solstice.orderorderlines.metrics;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.routing.HttpRoute;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class InstrumentedConnectionManagerTest {
+
+  private MeterRegistry meterRegistry;
+  private InstrumentedConnectionManager connectionManager;
+
+  @Before
+  public void setup() {
+    meterRegistry = new SimpleMeterRegistry();
+    connectionManager = new InstrumentedConnectionManager(60_000, meterRegistry);
+    connectionManager.setMaxTotal(10);
+  }
+
+  @After
+  public void teardown() {
+    connectionManager.shutdown();
+  }
+
+  @Test
+  public void leasedConnection_IsReportedAndLeaseWaitRecorded() throws Exception {
+    HttpRoute route = new HttpRoute(new HttpHost("localhost", 8080));
+
+    HttpClientConnection connection = connectionManager.requestConnection(route, null)
+        .get(1, TimeUnit.SECONDS);
+
+    assertThat(gauge("leased"), is(1.0));
+    assertThat(gauge("available"), is(0.0));
+    assertThat(meterRegistry.get("orders.client.pool.max").gauge().value(), is(10.0));
+    assertThat(meterRegistry.get("orders.client.pool.lease.wait").timer().count(), is(1L));
+
+    connectionManager.releaseConnection(connection, null, 1, TimeUnit.MINUTES);
+
+    assertThat(gauge("leased"), is(0.0));
+    assertThat(meterRegistry.get("orders.client.pool.pending").gauge().value(), is(0.0));
+  }
+
+  @Test(expected = ConnectionPoolTimeoutException.class)
+  public void poolExhausted_WaitsNoLongerThanMaxLeaseWait() throws Exception {
+    HttpRoute route = new HttpRoute(new HttpHost("localhost", 8080));
+    connectionManager.setMaxPerRoute(route, 1);
+    connectionManager.setMaxLeaseWait(50);
+    connectionManager.requestConnection(route, null).get(1, TimeUnit.SECONDS);
+
+    // Without the cap, a timeout of 0 would wait for a connection forever.
+    connectionManager.requestConnection(route, null).get(0, TimeUnit.MILLISECONDS);
+  }
+
+  private double gauge(String state) {
+    return meterRegistry.get("orders.client.pool.connections").tag("state", state).gauge().value();
+  }
+}
@@ -0,0 +1,70 @@
+package com.solstice.orderorderlines.model;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class MoneyTest {
+
+  private ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  public void fromDecimal_MoreThanTwoDecimals_RoundsHalfUp() {
+    assertThat(Money.fromDecimal(new BigDecimal("2.505")), is(251L));
+    assertThat(Money.fromDecimal(new BigDecimal("2.504")), is(250L));
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void multiply_Overflow_ThrowsArithmeticException() {
+    Money.multiply(Long.MAX_VALUE / 2, 3);
+  }
+
+  @Test
+  public void setTotalPrice_ManyTenCentLines_SumsExactly() {
+    List<OrderLineItem> orderLineItems = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      orderLineItems.add(new OrderLineItem(1, 3, 10, 1));
+    }
+    Order order = new Order(1, null, 1, orderLineItems);
+
+    assertThat(order.getTotalPrice(), is(30000L));
+  }
+
+  @Test
+  public void jsonDeserialize_DecimalPrice_ReadsMinorUnits() throws IOException {
+    OrderLineItem orderLineItem = objectMapper.readValue(
+        "{\"productId\": 1, \"quantity\": 3, \"price\": 0.10, \"shipmentId\": 1}",
+        OrderLineItem.class);
+
+    assertThat(orderLineItem.getPrice(), is(10L));
+    assertThat(orderLineItem.getTotalPrice(), is(30L));
+  }
+
+  @Test
+  public void jsonDeserialize_StringPrice_ReadsMinorUnits() throws IOException {
+    OrderLineItem orderLineItem = objectMapper.readValue(
+        "{\"productId\": 1, \"quantity\": 1, \"price\": \"19.99\", \"shipmentId\": 1}",
+        OrderLineItem.class);
+
+    assertThat(orderLineItem.getPrice(), is(1999L));
+  }
+
+  @Test
+  public void jsonSerialize_OrderLineItem_WritesDecimalAmounts() throws IOException {
+    String json = objectMapper.writeValueAsString(new OrderLineItem(1, 3, 250, 1));
+
+    assertThat(objectMapper.readTree(json).get("price").decimalValue(),
+        is(new BigDecimal("2.50")));
+    assertThat(objectMapper.readTree(json).get("totalPrice").decimalValue(),
+        is(new BigDecimal("7.50")));
+  }
+}
@@ -0,0 +1,336 @@
+package com.solstice.orderorderlines.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.solstice.orderorderlines.config.OrderServiceProperties;
+import com.solstice.orderorderlines.config.ReadReplicaProperties;
+import com.solstice.orderorderlines.dao.OrderDetailSnapshotRepository;
+import com.solstice.orderorderlines.dao.OrderDetailSnapshotStamp;
+import com.solstice.orderorderlines.dao.OrderLineItemRepository;
+import com.solstice.orderorderlines.dao.OrderNumbersStamp;
+import com.solstice.orderorderlines.dao.OrderRepository;
+import com.solstice.orderorderlines.dao.ReplicaRoutingDataSource;
+import com.solstice.orderorderlines.external.AccountAddressClient;
+import com.solstice.orderorderlines.external.ProductClient;
+import com.solstice.orderorderlines.external.ShipmentClient;
+import com.solstice.orderorderlines.model.Address;
+import com.solstice.orderorderlines.model.Order;
+import com.solstice.orderorderlines.model.OrderDetail;
+import com.solstice.orderorderlines.model.OrderDetailSnapshot;
+import com.solstice.orderorderlines.model.OrderLineItem;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OrderDetailReadModelTest {
+
+  @Mock
+  private OrderDetailSnapshotRepository orderDetailSnapshotRepository;
+  @Mock
+  private OrderRepository orderRepository;
+  @Mock
+  private OrderOrderLineService orderOrderLineService;
+
+  private OrderDetailReadModel orderDetailReadModel;
+  private List<Runnable> rebuilds = new ArrayList<>();
+
+  @Before
+  public void setup() {
+    orderDetailReadModel = new OrderDetailReadModel(
+        orderDetailSnapshotRepository,
+        orderRepository,
+        orderOrderLineService,
+        new OrderServiceProperties(),
+        rebuilds::add);
+  }
+
+  @Test
+  public void getOrderDetails_SnapshotsOfAllOrders_ReturnsDetailsWithRefreshTime() {
+    stubStamps(1, 1, 0);
+    LocalDateTime refreshedAt = LocalDateTime.of(2018, 9, 10, 12, 0);
+    when(orderDetailSnapshotRepository.findAllByAccountIdOrderByOrderDateAscOrderNumberAsc(1))
+        .thenReturn(Collections.singletonList(
+            new OrderDetailSnapshot(getOrder(1), getOrderDetail(1), refreshedAt)));
+
+    List<OrderDetail> orderDetails = orderDetailReadModel.getOrderDetails(1, eTag -> false);
+
+    assertThat(orderDetails.size(), is(1));
+    assertThat(orderDetails.get(0).getOrderNumber(), is(1L));
+    assertThat(orderDetails.get(0).getRefreshedAt(), is(refreshedAt));
+    verify(orderOrderLineService, never()).buildOrderDetails(anyList());
+  }
+
+  @Test
+  public void getOrderDetails_ETagMatches_ReturnsNullWithoutReadingSnapshots() {
+    stubStamps(2, 3, 5);
+
+    assertThat(orderDetailReadModel.getOrderDetails(1, "2-3-7-5"::equals), is(nullValue()));
+    verify(orderDetailSnapshotRepository, never())
+        .findAllByAccountIdOrderByOrderDateAscOrderNumberAsc(1);
+  }
+
+  @Test
+  public void getOrderDetails_SnapshotSavedAgain_ChangesETag() {
+    OrderDetailSnapshotStamp snapshots = stubStamps(2, 3, 5);
+    List<String> eTags = new ArrayList<>();
+
+    orderDetailReadModel.getOrderDetails(1, eTags::add);
+    when(snapshots.getVersionSum()).thenReturn(6L);
+    orderDetailReadModel.getOrderDetails(1, eTags::add);
+
+    assertThat(eTags.size(), is(2));
+    assertThat(eTags.get(0).equals(eTags.get(1)), is(false));
+  }
+
+  @Test
+  public void getOrderDetails_NoOrders_ReturnsEmptyListWithoutETag() {
+    stubStamps(0, 0, 0);
+
+    assertThat(orderDetailReadModel.getOrderDetails(1, eTag -> {
+      throw new AssertionError("no entity tag expected");
+    }).isEmpty(), is(true));
+  }
+
+  @Test
+  public void getOrderDetails_OrderWithoutSnapshot_ServesPendingDetailAndRebuildsOnce() {
+    OrderNumbersStamp orders = mock(OrderNumbersStamp.class);
+    when(orders.getCount()).thenReturn(2L);
+    OrderDetailSnapshotStamp snapshots = mock(OrderDetailSnapshotStamp.class);
+    when(snapshots.getCount()).thenReturn(2L);
+    when(orders.getOrderNumberSum()).thenReturn(3L);
+    when(snapshots.getOrderNumberSum()).thenReturn(4L);
+    when(orderRepository.findStampByAccountId(10)).thenReturn(orders);
+    when(orderDetailSnapshotRepository.findStampByAccountId(10)).thenReturn(snapshots);
+    LocalDateTime refreshedAt = LocalDateTime.of(2018, 9, 10, 12, 0);
+    when(orderRepository.findAllWithOrderLineItemsByAccountIdOrderByOrderDate(10))
+        .thenReturn(Arrays.asList(getOrder(1), getOrder(2)));
+    when(orderDetailSnapshotRepository.findAllByAccountIdOrderByOrderDateAscOrderNumberAsc(10))
+        .thenReturn(Arrays.asList(
+            new OrderDetailSnapshot(getOrder(1), getOrderDetail(1), refreshedAt),
+            new OrderDetailSnapshot(getOrder(3), getOrderDetail(3), refreshedAt)));
+
+    List<OrderDetail> orderDetails = orderDetailReadModel.getOrderDetails(10, eTag -> {
+      throw new AssertionError("no entity tag expected");
+    });
+    orderDetailReadModel.getOrderDetails(10, eTag -> false);
+
+    // Order 3 was deleted, order 2 has no snapshot yet.
+    assertThat(orderDetails.size(), is(2));
+    assertThat(orderDetails.get(0).getRefreshedAt(), is(refreshedAt));
+    assertThat(orderDetails.get(1).getOrderNumber(), is(2L));
+    assertThat(orderDetails.get(1).getTotalPrice(), is(500L));
+    assertThat(orderDetails.get(1).getOrderLineItems().get(0).getQuantity(), is(2));
+    assertThat(orderDetails.get(1).getStaleFields().size(), is(3));
+    assertThat(rebuilds.size(), is(1));
+    verify(orderOrderLineService, never()).buildOrderDetails(anyList());
+
+    when(orderRepository.findAllWithOrderLineItemsByOrderNumberIn(Collections.singletonList(2L)))
+        .thenReturn(Collections.singletonList(getOrder(2)));
+    when(orderOrderLineService.buildOrderDetails(anyList()))
+        .thenReturn(Collections.singletonList(getOrderDetail(2)));
+    rebuilds.get(0).run();
+
+    verify(orderDetailSnapshotRepository).saveAllUnlessNewer(argThat(snapshots ->
+        snapshots.size() == 1 && snapshots.get(0).getOrderNumber() == 2));
+  }
+
+  @Test
+  public void refresh_OrdersFound_SavesOneSnapshotPerOrder() {
+    List<Order> orders = Arrays.asList(getOrder(1), getOrder(2));
+    orders.get(1).setRevision(4);
+    when(orderRepository.findAllWithOrderLineItemsByOrderNumberIn(Arrays.asList(1L, 2L)))
+        .thenReturn(orders);
+    when(orderOrderLineService.buildOrderDetails(orders))
+        .thenReturn(Arrays.asList(getOrderDetail(1), getOrderDetail(2)));
+
+    orderDetailReadModel.refresh(Arrays.asList(1L, 2L));
+
+    verify(orderDetailSnapshotRepository).saveAllUnlessNewer(argThat(snapshots -> {
+      List<OrderDetailSnapshot> saved = new ArrayList<>();
+      snapshots.forEach(saved::add);
+      return saved.size() == 2
+          && saved.get(0).getOrderNumber() == 1
+          && saved.get(1).getDetail().getOrderNumber() == 2
+          && saved.get(1).getAccountId() == 10
+          && saved.get(1).getRevision() == 4;
+    }));
+    verify(orderDetailSnapshotRepository, never()).deleteByOrderNumberIn(anyCollection());
+  }
+
+  @Test
+  public void refresh_ReadOnlyTransaction_ReadsOrdersFromPrimary() throws Exception {
+    DataSource primary = mock(DataSource.class);
+    DataSource replica = mock(DataSource.class);
+    ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(primary,
+        Collections.singletonList(replica));
+    routingDataSource.afterPropertiesSet();
+    List<Order> orders = Collections.singletonList(getOrder(1));
+    when(orderRepository.findAllWithOrderLineItemsByOrderNumberIn(anyCollection()))
+        .thenAnswer(invocation -> {
+          routingDataSource.getConnection();
+          return orders;
+        });
+    when(orderOrderLineService.buildOrderDetails(orders))
+        .thenReturn(Collections.singletonList(getOrderDetail(1)));
+
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    try {
+      orderDetailReadModel.refresh(Collections.singletonList(1L));
+    } finally {
+      TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    verify(primary).getConnection();
+    verify(replica, never()).getConnection();
+  }
+
+  @Test
+  public void refresh_OrderDeleted_DeletesItsSnapshot() {
+    List<Order> orders = Collections.singletonList(getOrder(1));
+    when(orderRepository.findAllWithOrderLineItemsByOrderNumberIn(Arrays.asList(1L, 2L)))
+        .thenReturn(orders);
+    when(orderOrderLineService.buildOrderDetails(orders))
+        .thenReturn(Collections.singletonList(getOrderDetail(1)));
+
+    orderDetailReadModel.refresh(Arrays.asList(1L, 2L));
+
+    verify(orderDetailSnapshotRepository).deleteByOrderNumberIn(Collections.singletonList(2L));
+  }
+
+  @Test
+  public void refresh_DetailsFromFallbackData_BackdatesInsteadOfSavingAsFresh() {
+    List<Order> orders = Arrays.asList(getOrder(1), getOrder(2));
+    OrderDetail stale1 = getOrderDetail(1);
+    stale1.setStaleFields(Collections.singletonList(OrderDetail.SHIPMENTS));
+    OrderDetail stale2 = getOrderDetail(2);
+    stale2.setStaleFields(Collections.singletonList(OrderDetail.SHIPMENTS));
+    when(orderRepository.findAllWithOrderLineItemsByOrderNumberIn(Arrays.asList(1L, 2L)))
+        .thenReturn(orders);
+    when(orderOrderLineService.buildOrderDetails(orders))
+        .thenReturn(Arrays.asList(stale1, stale2));
+    when(orderDetailSnapshotRepository.findOrderNumbersByOrderNumberIn(Arrays.asList(1L, 2L)))
+        .thenReturn(Collections.singletonList(1L));
+    LocalDateTime due = LocalDateTime.now().minusMinutes(10);
+
+    orderDetailReadModel.refresh(Arrays.asList(1L, 2L));
+
+    // Order 1 keeps its stored snapshot, order 2 had none and gets one that is already due.
+    verify(orderDetailSnapshotRepository).expireByOrderNumberIn(
+        argThat(orderNumbers -> orderNumbers.size() == 1 && orderNumbers.contains(1L)),
+        argThat(refreshedAt -> !refreshedAt.isAfter(due.plusSeconds(5))));
+    verify(orderDetailSnapshotRepository).saveAllUnlessNewer(argThat(snapshots -> {
+      List<OrderDetailSnapshot> saved = new ArrayList<>();
+      snapshots.forEach(saved::add);
+      return saved.size() == 1
+          && saved.get(0).getOrderNumber() == 2
+          && !saved.get(0).getRefreshedAt().isAfter(due.plusSeconds(5));
+    }));
+  }
+
+  @Test
+  public void refresh_AccountsShareAddressId_BuildsEachOrderWithItsAccountsAddress() {
+    AccountAddressClient accountAddressClient = mock(AccountAddressClient.class);
+    OrderOrderLineService liveService = new OrderOrderLineService(
+        mock(OrderLineItemRepository.class),
+        orderRepository,
+        accountAddressClient,
+        mock(ProductClient.class),
+        mock(ShipmentClient.class),
+        Runnable::run,
+        new OrderServiceProperties(),
+        mock(EntityManager.class),
+        mock(ApplicationEventPublisher.class),
+        new ReadYourWrites(new ReadReplicaProperties(), mock(EntityManager.class)));
+    orderDetailReadModel = new OrderDetailReadModel(
+        orderDetailSnapshotRepository,
+        orderRepository,
+        liveService,
+        new OrderServiceProperties(),
+        rebuilds::add);
+    Order order1 = getOrder(1);
+    Order order2 = getOrder(2);
+    order2.setAccountId(20);
+    when(orderRepository.findAllWithOrderLineItemsByOrderNumberIn(Arrays.asList(1L, 2L)))
+        .thenReturn(Arrays.asList(order1, order2));
+    when(accountAddressClient.getAddressByAccountIdAndAddressId(10, 1))
+        .thenReturn(new Address("10 Account St", "", "Chicago", "IL", "60606", "US"));
+    when(accountAddressClient.getAddressByAccountIdAndAddressId(20, 1))
+        .thenReturn(new Address("20 Account St", "", "Chicago", "IL", "60606", "US"));
+
+    orderDetailReadModel.refresh(Arrays.asList(1L, 2L));
+
+    verify(orderDetailSnapshotRepository).saveAllUnlessNewer(argThat(snapshots -> {
+      List<OrderDetailSnapshot> saved = new ArrayList<>();
+      snapshots.forEach(saved::add);
+      return saved.size() == 2
+          && saved.get(0).getAccountId() == 10
+          && saved.get(0).getDetail().getShippingAddress().getStreet().equals("10 Account St")
+          && saved.get(1).getAccountId() == 20
+          && saved.get(1).getDetail().getShippingAddress().getStreet().equals("20 Account St");
+    }));
+  }
+
+  @Test
+  public void onOrdersChanged_BuildFails_KeepsPreviousSnapshot() {
+    when(orderRepository.findAllWithOrderLineItemsByOrderNumberIn(anyCollection()))
+        .thenReturn(Collections.singletonList(getOrder(1)));
+    when(orderOrderLineService.buildOrderDetails(anyList()))
+        .thenThrow(new IllegalStateException("product-service unavailable"));
+
+    orderDetailReadModel.onOrdersChanged(new OrdersChangedEvent(Collections.singletonList(1L)));
+
+    verify(orderDetailSnapshotRepository, never()).saveAllUnlessNewer(anyList());
+    verify(orderDetailSnapshotRepository, never()).deleteByOrderNumberIn(anyCollection());
+  }
+
+  /**
+   * Stubs account 1 with count orders and snapshots of the same orders, whose revisions sum to 7.
+   */
+  private OrderDetailSnapshotStamp stubStamps(long count, long orderNumberSum, long versionSum) {
+    OrderNumbersStamp orders = mock(OrderNumbersStamp.class);
+    when(orders.getCount()).thenReturn(count);
+    when(orders.getOrderNumberSum()).thenReturn(orderNumberSum);
+    OrderDetailSnapshotStamp snapshots = mock(OrderDetailSnapshotStamp.class);
+    when(snapshots.getCount()).thenReturn(count);
+    when(snapshots.getOrderNumberSum()).thenReturn(orderNumberSum);
+    if (count > 0) {
+      when(snapshots.getRevisionSum()).thenReturn(7L);
+      when(snapshots.getVersionSum()).thenReturn(versionSum);
+    }
+    when(orderRepository.findStampByAccountId(1)).thenReturn(orders);
+    when(orderDetailSnapshotRepository.findStampByAccountId(1)).thenReturn(snapshots);
+    return snapshots;
+  }
+
+  private Order getOrder(long orderNumber) {
+    Order order = new Order(10, LocalDateTime.of(2018, 9, 1, 12, 0).plusDays(orderNumber), 1,
+        new ArrayList<>(Collections.singletonList(new OrderLineItem(1, 2, 250, 1))));
+    order.setOrderNumber(orderNumber);
+    return order;
+  }
+
+  private OrderDetail getOrderDetail(long orderNumber) {
+    return new OrderDetail(orderNumber, null, 500, new ArrayList<>(), new ArrayList<>());
+  }
+}
@@ -4,38 +4,70 @@ import static junit.framework.TestCase.fail;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.hystrix.exception.HystrixRuntimeException;
+import com.netflix.hystrix.exception.HystrixRuntimeException.FailureType;
+import com.solstice.orderorderlines.config.OrderServiceProperties;
+import com.solstice.orderorderlines.config.ReadReplicaProperties;
 import com.solstice.orderorderlines.dao.OrderLineItemRepository;
 import com.solstice.orderorderlines.dao.OrderRepository;
+import com.solstice.orderorderlines.exception.HTTP400Exception;
+import com.solstice.orderorderlines.exception.HTTP503Exception;
+import com.solstice.orderorderlines.exception.HTTP504Exception;
 import com.solstice.orderorderlines.external.AccountAddressClient;
 import com.solstice.orderorderlines.external.ProductClient;
 import com.solstice.orderorderlines.external.ShipmentClient;
 import com.solstice.orderorderlines.model.Address;
 import com.solstice.orderorderlines.model.Order;
+import com.solstice.orderorderlines.model.OrderBatchResult;
 import com.solstice.orderorderlines.model.OrderDetail;
 import com.solstice.orderorderlines.model.OrderLineItem;
 import com.solstice.orderorderlines.model.OrderLineSummary;
+import com.solstice.orderorderlines.model.OrderPage;
 import com.solstice.orderorderlines.model.Product;
 import com.solstice.orderorderlines.model.Shipment;
 import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.persistence.CacheRetrieveMode;
+import javax.persistence.EntityManager;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.junit4.SpringRunner;
 
 @RunWith(SpringRunner.class)
@@ -53,35 +85,119 @@ public class OrderOrderLineServiceUnitTests {
   private ProductClient productClient;
   @MockBean
   private ShipmentClient shipmentClient;
+  @MockBean
+  private EntityManager entityManager;
 
   private OrderOrderLineService orderOrderLineService;
+  private OrderServiceProperties orderServiceProperties;
+  private ExecutorService orderDetailsExecutor;
+  private ApplicationEventPublisher eventPublisher;
 
   @Before
   public void setup() {
+    orderServiceProperties = new OrderServiceProperties();
+    orderDetailsExecutor = Executors.newFixedThreadPool(4);
+    eventPublisher = mock(ApplicationEventPublisher.class);
     orderOrderLineService = new OrderOrderLineService(
         orderLineItemRepository,
         orderRepository,
         accountAddressClient,
         productClient,
-        shipmentClient);
+        shipmentClient,
+        orderDetailsExecutor,
+        orderServiceProperties,
+        entityManager,
+        eventPublisher,
+        new ReadYourWrites(new ReadReplicaProperties(), entityManager));
+  }
+
+  @After
+  public void tearDown() {
+    orderDetailsExecutor.shutdownNow();
   }
 
   @Test
   public void getOrders_OrdersFound_ReturnsListOfOrders() {
-    when(orderRepository.findAll()).thenReturn(getOrders());
-    List<Order> orders = orderOrderLineService.getOrders();
-
-    assertThat(orders, is(notNullValue()));
-    assertFalse(orders.isEmpty());
-    assertThatOrderListElementsAreNotEmpty(orders);
+    List<Order> expected = getNumberedOrders();
+    when(orderRepository.findOrderNumbersAfter(anyLong(), any(Pageable.class)))
+        .thenReturn(Arrays.asList(1L, 2L));
+    when(orderRepository.findAllWithOrderLineItemsByOrderNumberIn(anyCollection()))
+        .thenReturn(expected);
+    OrderPage page = orderOrderLineService.getOrders(null, null);
+
+    assertThat(page.getOrders(), is(notNullValue()));
+    assertFalse(page.getOrders().isEmpty());
+    assertThatOrderListElementsAreNotEmpty(page.getOrders());
+    assertThat(page.getNextCursor(), is(nullValue()));
+    verify(orderRepository).findOrderNumbersAfter(0L,
+        PageRequest.of(0, orderServiceProperties.getPaging().getDefaultSize() + 1));
   }
 
   @Test
   public void getOrders_OrdersNotFound_ReturnsEmptyListOfOrders() {
-    List<Order> orders = orderOrderLineService.getOrders();
+    OrderPage page = orderOrderLineService.getOrders(null, null);
+
+    assertThat(page.getOrders(), is(notNullValue()));
+    assertTrue(page.getOrders().isEmpty());
+    assertThat(page.getNextCursor(), is(nullValue()));
+    verify(orderRepository, never()).findAllWithOrderLineItemsByOrderNumberIn(anyCollection());
+  }
+
+  @Test
+  public void getOrders_MoreOrdersThanPageSize_ReturnsCursorToNextPage() {
+    List<Order> orders = getNumberedOrders();
+    when(orderRepository.findOrderNumbersAfter(0L, PageRequest.of(0, 2)))
+        .thenReturn(Arrays.asList(1L, 2L));
+    when(orderRepository.findAllWithOrderLineItemsByOrderNumberIn(Arrays.asList(1L)))
+        .thenReturn(orders.subList(0, 1));
+    OrderPage page = orderOrderLineService.getOrders(null, 1);
+
+    assertThat(page.getOrders().size(), is(1));
+    assertThat(page.getOrders().get(0).getOrderNumber(), is(1L));
+    assertThat(page.getNextCursor(), is(notNullValue()));
+
+    when(orderRepository.findOrderNumbersAfter(1L, PageRequest.of(0, 2)))
+        .thenReturn(Arrays.asList(2L));
+    when(orderRepository.findAllWithOrderLineItemsByOrderNumberIn(Arrays.asList(2L)))
+        .thenReturn(orders.subList(1, 2));
+    OrderPage nextPage = orderOrderLineService.getOrders(page.getNextCursor(), 1);
+
+    assertThat(nextPage.getOrders().size(), is(1));
+    assertThat(nextPage.getOrders().get(0).getOrderNumber(), is(2L));
+    assertThat(nextPage.getNextCursor(), is(nullValue()));
+  }
+
+  @Test
+  public void getOrders_SizeAboveMaximum_CapsPageSize() {
+    orderServiceProperties.getPaging().setMaxSize(10);
+    orderOrderLineService.getOrders(null, 500);
+
+    verify(orderRepository).findOrderNumbersAfter(0L, PageRequest.of(0, 11));
+  }
+
+  @Test(expected = HTTP400Exception.class)
+  public void getOrders_SizeNotPositive_ThrowsHTTP400Exception() {
+    orderOrderLineService.getOrders(null, 0);
+  }
 
-    assertThat(orders, is(notNullValue()));
-    assertTrue(orders.isEmpty());
+  @Test(expected = HTTP400Exception.class)
+  public void getOrders_MalformedCursor_ThrowsHTTP400Exception() {
+    orderOrderLineService.getOrders("not a cursor!", null);
+  }
+
+  @Test
+  public void exportOrders_OrdersFound_StreamsOrdersAndDetachesEach() {
+    List<Order> orders = getNumberedOrders();
+    AtomicBoolean closed = new AtomicBoolean();
+    when(orderRepository.streamAllWithOrderLineItems())
+        .thenReturn(orders.stream().onClose(() -> closed.set(true)));
+    List<Order> exported = new ArrayList<>();
+    orderOrderLineService.exportOrders(exported::add);
+
+    assertThat(exported, is(orders));
+    verify(entityManager).detach(orders.get(0));
+    verify(entityManager).detach(orders.get(1));
+    assertTrue(closed.get());
   }
 
   @Test
@@ -101,41 +217,218 @@ public class OrderOrderLineServiceUnitTests {
   @Test
   public void createOrder_ValidJson_ReturnsCreatedOrder() {
     Order order1 = getOrder1();
-    when(productClient.getProductById(1)).thenReturn(getTestProduct());
-    when(productClient.getProductById(3)).thenReturn(new Product("Testing",0.50));
+    when(productClient.getProductsByIds(anyCollection())).thenReturn(Arrays.asList(
+        new Product(1, "Test", 250),
+        new Product(3, "Testing", 50)
+    ));
     Order order = orderOrderLineService.createOrder(order1);
     assertThatOrdersAreEqual(order, order1);
   }
 
+  @Test
+  public void createOrder_ValidJson_PublishesOrdersChangedEvent() {
+    Order order1 = getOrder1();
+    when(orderRepository.save(order1)).thenAnswer(invocation -> {
+      order1.setOrderNumber(7);
+      return order1;
+    });
+    when(productClient.getProductsByIds(anyCollection())).thenReturn(getTestProducts());
+    orderOrderLineService.createOrder(order1);
+
+    verify(eventPublisher).publishEvent(argThat((Object event) ->
+        event instanceof OrdersChangedEvent && ((OrdersChangedEvent) event).getOrderNumbers()
+            .equals(Collections.singletonList(7L))));
+  }
+
   @Test
   public void createOrder_ProductServiceIsDown_TotalPriceIsZero() {
     Order order1 = getOrder1();
-    when(productClient.getProductById(anyLong())).thenReturn(new Product("",0));
+    when(productClient.getProductsByIds(anyCollection())).thenReturn(Arrays.asList(
+        new Product(1, "", 0),
+        new Product(3, "", 0)
+    ));
     Order order = orderOrderLineService.createOrder(order1);
     assertThat(order, is(notNullValue()));
-    assertThat(order.getTotalPrice(), is(0.0));
+    assertThat(order.getTotalPrice(), is(0L));
+  }
+
+  @Test
+  public void createOrder_IdsInBody_SavesAsNewOrderAndLines() {
+    Order order1 = getOrder1();
+    order1.setOrderNumber(1);
+    order1.getOrderLineItems().forEach(orderLineItem -> orderLineItem.setId(4));
+    when(productClient.getProductsByIds(anyCollection())).thenReturn(getTestProducts());
+    orderOrderLineService.createOrder(order1);
+
+    verify(orderRepository).save(argThat((Order order) -> order.getOrderNumber() == 0
+        && order.getOrderLineItems().stream()
+        .allMatch(orderLineItem -> orderLineItem.getId() == 0)));
+  }
+
+  @Test
+  public void createOrders_IdsInBody_SavesAsNewOrders() {
+    Order order1 = getOrder1();
+    order1.setOrderNumber(1);
+    order1.getOrderLineItems().forEach(orderLineItem -> orderLineItem.setId(4));
+    when(productClient.getProductsByIds(anyCollection())).thenReturn(getTestProducts());
+    orderOrderLineService.createOrders(Collections.singletonList(order1));
+
+    assertThat(order1.getOrderNumber(), is(0L));
+    order1.getOrderLineItems().forEach(orderLineItem -> assertThat(orderLineItem.getId(), is(0L)));
+  }
+
+  @Test
+  public void createOrder_NoOrderDate_DatesOrderNow() {
+    Order order1 = getOrder1();
+    order1.setOrderDate(null);
+    when(productClient.getProductsByIds(anyCollection())).thenReturn(getTestProducts());
+    LocalDateTime before = LocalDateTime.now();
+    Order order = orderOrderLineService.createOrder(order1);
+
+    assertThat(order.getOrderDate(), is(notNullValue()));
+    assertFalse(order.getOrderDate().isBefore(before));
+  }
+
+  @Test
+  public void createOrder_UnknownProduct_ThrowsHTTP400ExceptionAndSavesNothing() {
+    when(productClient.getProductsByIds(anyCollection()))
+        .thenReturn(Arrays.asList(new Product(1, "Test", 250)));
+    try {
+      orderOrderLineService.createOrder(getOrder1());
+      fail();
+    } catch (HTTP400Exception e) {
+      verify(orderRepository, never()).save(any(Order.class));
+    }
+  }
+
+  @Test(expected = HTTP503Exception.class)
+  public void createOrder_FallbackProduct_ThrowsHTTP503Exception() {
+    Product product = new Product(3, "", 0);
+    product.setFallback(true);
+    when(productClient.getProductsByIds(anyCollection()))
+        .thenReturn(Arrays.asList(new Product(1, "Test", 250), product));
+    orderOrderLineService.createOrder(getOrder1());
+  }
+
+  @Test
+  public void createOrder_RepeatedProducts_LooksUpEachProductOnce() {
+    Order order1 = getOrder1();
+    order1.addOrderLineItem(getOrderLineItem1());
+    when(productClient.getProductsByIds(anyCollection())).thenReturn(Arrays.asList(
+        new Product(1, "Test", 250),
+        new Product(3, "Testing", 50)
+    ));
+    Order order = orderOrderLineService.createOrder(order1);
+
+    assertThat(order.getOrderLineItems().size(), is(3));
+    order.getOrderLineItems().stream()
+        .filter(orderLineItem -> orderLineItem.getProductId() == 1)
+        .forEach(orderLineItem -> assertThat(orderLineItem.getPrice(), is(250L)));
+    verify(productClient, times(1)).getProductsByIds(argThat(ids -> ids.size() == 2));
+    verify(productClient, never()).getProductById(anyLong());
+  }
+
+  @Test
+  public void createOrders_ValidBatch_PricesWithOneLookupAndSavesInChunks() {
+    orderServiceProperties.getBatch().setChunkSize(2);
+    when(productClient.getProductsByIds(anyCollection())).thenReturn(getTestProducts());
+    List<Order> orders = Arrays.asList(getOrder1(), getOrder2(), getOrder1());
+    List<OrderBatchResult> results = orderOrderLineService.createOrders(orders);
+
+    assertThat(results.size(), is(3));
+    for (int i = 0; i < results.size(); i++) {
+      assertThat(results.get(i).getIndex(), is(i));
+      assertThat(results.get(i).getStatus(), is(OrderBatchResult.Status.CREATED));
+      assertThat(results.get(i).getOrder().getTotalPrice(), is(not(0L)));
+    }
+    verify(productClient, times(1)).getProductsByIds(anyCollection());
+    verify(orderRepository, times(2)).saveAll(any());
+  }
+
+  @Test
+  public void createOrders_OrderWithoutLineItems_RejectsOnlyThatOrder() {
+    when(productClient.getProductsByIds(anyCollection())).thenReturn(getTestProducts());
+    List<OrderBatchResult> results = orderOrderLineService
+        .createOrders(Arrays.asList(getOrder1(), new Order()));
+
+    assertThat(results.get(0).getStatus(), is(OrderBatchResult.Status.CREATED));
+    assertThat(results.get(1).getStatus(), is(OrderBatchResult.Status.REJECTED));
+    assertThat(results.get(1).getOrder(), is(nullValue()));
+  }
+
+  @Test
+  public void createOrders_OrderWithUnknownProduct_RejectsOnlyThatOrder() {
+    when(productClient.getProductsByIds(anyCollection())).thenReturn(Arrays.asList(
+        new Product(1, "Test", 250),
+        new Product(3, "Test", 250)));
+    List<OrderBatchResult> results = orderOrderLineService
+        .createOrders(Arrays.asList(getOrder1(), getOrder2()));
+
+    assertThat(results.get(0).getStatus(), is(OrderBatchResult.Status.CREATED));
+    assertThat(results.get(1).getStatus(), is(OrderBatchResult.Status.REJECTED));
+    assertThat(results.get(0).getOrder().getTotalPrice(), is(not(0L)));
+    verify(orderRepository, times(1)).saveAll(any());
+  }
+
+  @Test
+  public void createOrders_ChunkFailsToSave_MarksOnlyThatChunkFailed() {
+    orderServiceProperties.getBatch().setChunkSize(1);
+    Order order2 = getOrder2();
+    when(productClient.getProductsByIds(anyCollection())).thenReturn(getTestProducts());
+    when(orderRepository.saveAll(argThat(chunk -> chunk.iterator().next() == order2)))
+        .thenThrow(new DataIntegrityViolationException("duplicate"));
+    List<OrderBatchResult> results = orderOrderLineService
+        .createOrders(Arrays.asList(getOrder1(), order2));
+
+    assertThat(results.get(0).getStatus(), is(OrderBatchResult.Status.CREATED));
+    assertThat(results.get(1).getStatus(), is(OrderBatchResult.Status.FAILED));
+    verify(eventPublisher).publishEvent(argThat((Object event) ->
+        ((OrdersChangedEvent) event).getOrderNumbers().size() == 1));
+  }
+
+  @Test(expected = HTTP400Exception.class)
+  public void createOrders_BatchTooLarge_ThrowsHTTP400Exception() {
+    orderServiceProperties.getBatch().setMaxSize(1);
+    orderOrderLineService.createOrders(Arrays.asList(getOrder1(), getOrder2()));
   }
 
   @Test
   public void updateOrder_ValidIdAndJson_ReturnsOrder() {
     Order order1 = getOrder1();
-    when(orderRepository.findByOrderNumber(1)).thenReturn(order1);
-    when(productClient.getProductById(1)).thenReturn(getTestProduct());
-    when(productClient.getProductById(3)).thenReturn(new Product("Testing",0.50));
+    when(orderRepository.findForUpdateByOrderNumber(1)).thenReturn(order1);
+    when(productClient.getProductsByIds(anyCollection())).thenReturn(Arrays.asList(
+        new Product(1, "Test", 250),
+        new Product(3, "Testing", 50)
+    ));
     Order order = orderOrderLineService.updateOrder(1, order1);
     logger.debug(order.toString());
     logger.debug(order1.toString());
     assertThatOrdersAreEqual(order, order1);
+    assertThat(order.getRevision(), is(1L));
   }
 
   @Test
   public void updateOrder_ProductServiceIsDown_TotalPriceIsZero() {
     Order order1 = getOrder1();
-    when(orderRepository.findByOrderNumber(1)).thenReturn(order1);
-    when(productClient.getProductById(anyLong())).thenReturn(new Product("",0.0));
+    when(orderRepository.findForUpdateByOrderNumber(1)).thenReturn(order1);
+    when(productClient.getProductsByIds(anyCollection())).thenReturn(Arrays.asList(
+        new Product(1, "", 0),
+        new Product(3, "", 0)
+    ));
     Order order = orderOrderLineService.updateOrder(1, order1);
     assertThat(order, is(notNullValue()));
-    assertThat(order.getTotalPrice(), is(0.0));
+    assertThat(order.getTotalPrice(), is(0L));
+  }
+
+  @Test
+  public void updateOrder_NoOrderDate_KeepsStoredOrderDate() {
+    Order order1 = getOrder1();
+    order1.setOrderDate(null);
+    when(orderRepository.findForUpdateByOrderNumber(1)).thenReturn(getOrder1());
+    when(productClient.getProductsByIds(anyCollection())).thenReturn(getTestProducts());
+    Order order = orderOrderLineService.updateOrder(1, order1);
+
+    assertThat(order.getOrderDate(), is(equalTo(getOrder1().getOrderDate())));
   }
 
   @Test
@@ -155,6 +448,19 @@ public class OrderOrderLineServiceUnitTests {
   @Test
   public void deleteOrder_InvalidId_ReturnNull() {
     assertThat(orderOrderLineService.deleteOrder(1), is(nullValue()));
+    verify(eventPublisher, never()).publishEvent(any(Object.class));
+  }
+
+  @Test
+  public void getOrderETag_ValidId_CombinesOrderNumberAndRevision() {
+    when(orderRepository.findRevisionByOrderNumber(1)).thenReturn(3L);
+
+    assertThat(orderOrderLineService.getOrderETag(1), is("1-3"));
+  }
+
+  @Test
+  public void getOrderETag_InvalidId_ReturnsNull() {
+    assertThat(orderOrderLineService.getOrderETag(1), is(nullValue()));
   }
 
   @Test
@@ -175,6 +481,35 @@ public class OrderOrderLineServiceUnitTests {
     });
   }
 
+  @Test
+  public void getOrderLineItems_ValidId_ReadsPastEntityCache() {
+    orderOrderLineService.getOrderLineItems(1);
+
+    verify(entityManager).setProperty("javax.persistence.cache.retrieveMode",
+        CacheRetrieveMode.BYPASS);
+    verify(entityManager).setProperty("javax.persistence.cache.retrieveMode",
+        CacheRetrieveMode.USE);
+  }
+
+  @Test
+  public void getOrderById_NotWrittenRecently_ReadsThroughEntityCache() {
+    orderOrderLineService.getOrderById(1);
+
+    verify(entityManager, never()).setProperty(any(), any());
+  }
+
+  @Test
+  public void getOrderById_WrittenRecently_ReadsPastEntityCache() {
+    when(orderRepository.findForUpdateByOrderNumber(1)).thenReturn(getOrder1());
+    when(productClient.getProductById(anyLong())).thenReturn(getTestProduct());
+    orderOrderLineService.createOrderLineItem(1, getOrderLineItem1());
+
+    orderOrderLineService.getOrderById(1);
+
+    verify(entityManager).setProperty("javax.persistence.cache.retrieveMode",
+        CacheRetrieveMode.BYPASS);
+  }
+
   @Test
   public void getOrderLineItems_InvalidId_ReturnsEmptyList() {
     List<OrderLineItem> orderLineItems = orderOrderLineService.getOrderLineItems(1);
@@ -187,7 +522,7 @@ public class OrderOrderLineServiceUnitTests {
   @Test
   public void createOrderLineItem_ValidIdAndJson_ReturnsCreatedOrder() {
     OrderLineItem orderLineItem1 = getOrderLineItem1();
-    when(orderRepository.findByOrderNumber(1)).thenReturn(getOrder1());
+    when(orderRepository.findForUpdateByOrderNumber(1)).thenReturn(getOrder1());
     when(productClient.getProductById(anyLong())).thenReturn(getTestProduct());
     OrderLineItem orderLineItem = orderOrderLineService.createOrderLineItem(1, orderLineItem1);
 
@@ -197,13 +532,13 @@ public class OrderOrderLineServiceUnitTests {
   @Test
   public void createOrderLineItem_ProductServiceIsDown_TotalPriceIsZero() {
     OrderLineItem orderLineItem1 = getOrderLineItem1();
-    when(orderRepository.findByOrderNumber(1)).thenReturn(getOrder1());
-    when(productClient.getProductById(anyLong())).thenReturn(new Product("", 0.0));
+    when(orderRepository.findForUpdateByOrderNumber(1)).thenReturn(getOrder1());
+    when(productClient.getProductById(anyLong())).thenReturn(new Product("", 0));
     OrderLineItem orderLineItem = orderOrderLineService.createOrderLineItem(1, orderLineItem1);
 
     assertThat(orderLineItem, is(notNullValue()));
-    assertThat(orderLineItem.getPrice(), is(0.0));
-    assertThat(orderLineItem.getTotalPrice(), is(0.0));
+    assertThat(orderLineItem.getPrice(), is(0L));
+    assertThat(orderLineItem.getTotalPrice(), is(0L));
   }
 
   @Test
@@ -215,6 +550,7 @@ public class OrderOrderLineServiceUnitTests {
   @Test
   public void updateOrderLineItem_ValidIdAndJson_ReturnsOrder() {
     OrderLineItem orderLineItem1 = getOrderLineItem1();
+    when(orderRepository.findForUpdateByOrderNumber(1)).thenReturn(getOrder1());
     when(orderLineItemRepository.findOrderLineItemByIdAndOrderId(1, 1))
         .thenReturn(orderLineItem1);
     when(productClient.getProductById(anyLong())).thenReturn(getTestProduct());
@@ -224,18 +560,37 @@ public class OrderOrderLineServiceUnitTests {
     assertThatOrderLineItemsAreEqual(orderLineItem, orderLineItem1);
   }
 
+  @Test
+  public void updateOrderLineItem_ValidIdAndJson_SavesLineAndBumpsOrderRevision() {
+    OrderLineItem orderLineItem1 = getOrderLineItem1();
+    Order order1 = getOrder1();
+    when(orderRepository.findForUpdateByOrderNumber(1)).thenReturn(order1);
+    when(orderLineItemRepository.findOrderLineItemByIdAndOrderId(4, 1))
+        .thenReturn(getOrderLineItem1());
+    when(productClient.getProductById(anyLong())).thenReturn(getTestProduct());
+    OrderLineItem orderLineItem = orderOrderLineService
+        .updateOrderLineItem(1, 4, orderLineItem1);
+
+    assertThat(orderLineItem.getId(), is(4L));
+    assertThat(orderLineItem.getTotalPrice(),
+        is(orderLineItem.getPrice() * orderLineItem.getQuantity()));
+    verify(orderLineItemRepository).save(orderLineItem);
+    assertThat(order1.getRevision(), is(1L));
+  }
+
   @Test
   public void updateOrderLineItem_ProductServiceIsDown_TotalPriceIsZero() {
     OrderLineItem orderLineItem1 = getOrderLineItem1();
+    when(orderRepository.findForUpdateByOrderNumber(1)).thenReturn(getOrder1());
     when(orderLineItemRepository.findOrderLineItemByIdAndOrderId(1, 1))
         .thenReturn(orderLineItem1);
-    when(productClient.getProductById(anyLong())).thenReturn(new Product("", 0.0));
+    when(productClient.getProductById(anyLong())).thenReturn(new Product("", 0));
     OrderLineItem orderLineItem = orderOrderLineService
         .updateOrderLineItem(1, 1, orderLineItem1);
 
     assertThat(orderLineItem, is(notNullValue()));
-    assertThat(orderLineItem.getPrice(), is(0.0));
-    assertThat(orderLineItem.getTotalPrice(), is(0.0));
+    assertThat(orderLineItem.getPrice(), is(0L));
+    assertThat(orderLineItem.getTotalPrice(), is(0L));
   }
 
   @Test
@@ -247,6 +602,7 @@ public class OrderOrderLineServiceUnitTests {
   @Test
   public void deleteOrderLineItem_ValidId_ReturnDeletedOrder() {
     OrderLineItem orderLineItem1 = getOrderLineItem1();
+    when(orderRepository.findForUpdateByOrderNumber(1)).thenReturn(getOrder1());
     when(orderLineItemRepository.findOrderLineItemByIdAndOrderId(1, 1))
         .thenReturn(orderLineItem1);
     OrderLineItem orderLineItem = orderOrderLineService
@@ -255,6 +611,20 @@ public class OrderOrderLineServiceUnitTests {
     assertThatOrderLineItemsAreEqual(orderLineItem, orderLineItem1);
   }
 
+  @Test
+  public void deleteOrderLineItem_ValidId_RemovesLineAndRefreshesOrderTotal() {
+    Order order1 = getOrder1();
+    order1.getOrderLineItems().get(0).setId(4);
+    when(orderRepository.findForUpdateByOrderNumber(1)).thenReturn(order1);
+    when(orderLineItemRepository.findOrderLineItemByIdAndOrderId(4, 1))
+        .thenReturn(getOrderLineItem1());
+    orderOrderLineService.deleteOrderLineItem(1, 4);
+
+    assertThat(order1.getOrderLineItems().size(), is(1));
+    assertThat(order1.getTotalPrice(), is(getOrderLineItem3().getTotalPrice()));
+    assertThat(order1.getRevision(), is(1L));
+  }
+
   @Test
   public void deleteOrderLineItem_InvalidId_ReturnNull() {
     assertThat(orderOrderLineService .deleteOrderLineItem(1, 1),
@@ -263,20 +633,48 @@ public class OrderOrderLineServiceUnitTests {
 
   @Test
   public void getOrdersByAccountId_ValidId_ReturnsListOfOrders() {
-    when(orderRepository.findAllByAccountIdOrderByOrderDate(1)).thenReturn(getOrders());
-    List<Order> orders = orderOrderLineService.getOrdersByAccountId(1);
-
-    assertThat(orders, is(notNullValue()));
-    assertFalse(orders.isEmpty());
-    assertThatOrderListElementsAreNotEmpty(orders);
+    when(orderRepository.findOrderNumbersByAccountId(anyLong(), any(Pageable.class)))
+        .thenReturn(Arrays.asList(2L, 1L));
+    when(orderRepository.findAllWithOrderLineItemsByOrderNumberIn(anyCollection()))
+        .thenReturn(getNumberedOrders());
+    OrderPage page = orderOrderLineService.getOrdersByAccountId(1, null, null);
+
+    assertThat(page.getOrders(), is(notNullValue()));
+    assertFalse(page.getOrders().isEmpty());
+    assertThatOrderListElementsAreNotEmpty(page.getOrders());
+    assertThat(page.getOrders().get(0).getOrderNumber(), is(2L));
+    assertThat(page.getOrders().get(1).getOrderNumber(), is(1L));
   }
 
   @Test
   public void getOrdersByAccountId_InvalidId_ReturnsEmptyListOfOrders() {
-    List<Order> orders = orderOrderLineService.getOrdersByAccountId(-1);
+    OrderPage page = orderOrderLineService.getOrdersByAccountId(-1, null, null);
 
-    assertThat(orders, is(notNullValue()));
-    assertTrue(orders.isEmpty());
+    assertThat(page.getOrders(), is(notNullValue()));
+    assertTrue(page.getOrders().isEmpty());
+  }
+
+  @Test
+  public void getOrdersByAccountId_MoreOrdersThanPageSize_ResumesAfterLastOrderDate() {
+    List<Order> orders = getNumberedOrders();
+    when(orderRepository.findOrderNumbersByAccountId(1, PageRequest.of(0, 2)))
+        .thenReturn(Arrays.asList(2L, 1L));
+    when(orderRepository.findAllWithOrderLineItemsByOrderNumberIn(Arrays.asList(2L)))
+        .thenReturn(orders.subList(1, 2));
+    OrderPage page = orderOrderLineService.getOrdersByAccountId(1, null, 1);
+
+    assertThat(page.getOrders().get(0).getOrderNumber(), is(2L));
+    assertThat(page.getNextCursor(), is(notNullValue()));
+
+    orderOrderLineService.getOrdersByAccountId(1, page.getNextCursor(), 1);
+
+    verify(orderRepository).findOrderNumbersByAccountIdAfter(
+        1, orders.get(1).getOrderDate(), 2L, PageRequest.of(0, 2));
+  }
+
+  @Test(expected = HTTP400Exception.class)
+  public void getOrdersByAccountId_CursorWithoutOrderDate_ThrowsHTTP400Exception() {
+    orderOrderLineService.getOrdersByAccountId(1, OrderCursor.of(2L).encode(), null);
   }
 
   @Test
@@ -305,8 +703,8 @@ public class OrderOrderLineServiceUnitTests {
         LocalDateTime.of(2018, 9, 8, 12, 30),
         LocalDateTime.of(2018, 9, 12, 8, 40));
 
-    when(productClient.getProductById(anyLong())).thenReturn(product);
-    when(orderRepository.findAllByAccountIdOrderByOrderDate(1)).thenReturn(Arrays.asList(
+    when(productClient.getProductsByIds(anyCollection())).thenReturn(getTestProducts());
+    when(orderRepository.findAllWithOrderLineItemsByAccountIdOrderByOrderDate(1)).thenReturn(Arrays.asList(
         order1,
         order2
     ));
@@ -316,7 +714,8 @@ public class OrderOrderLineServiceUnitTests {
     ));
     when(accountAddressClient.getAddressByAccountIdAndAddressId(anyLong(), anyLong()))
         .thenReturn(address);
-    when(shipmentClient.getShipmentById(anyLong())).thenReturn(testShipment);
+    when(shipmentClient.getShipmentsByIds(anyCollection()))
+        .thenReturn(Arrays.asList(testShipment));
 
     List<OrderDetail> orderDetails = orderOrderLineService.getOrderDetails(1);
 
@@ -331,11 +730,14 @@ public class OrderOrderLineServiceUnitTests {
     assertThat(orderDetail.getShippingAddress(), is(equalTo(address)));
     assertThat(orderDetail.getTotalPrice(), is(getOrder1().getTotalPrice()));
 
-    orderDetail.getOrderLineItems().forEach(orderLineSummary -> {
+    assertThat(orderDetail.getOrderLineItems().size(), is(order1.getOrderLineItems().size()));
+    for (int i = 0; i < orderDetail.getOrderLineItems().size(); i++) {
+      OrderLineSummary orderLineSummary = orderDetail.getOrderLineItems().get(i);
       assertThat(orderLineSummary, is(notNullValue()));
       assertThat(orderLineSummary.getProductName(), is(equalTo(product.getName())));
-      assertThat(orderLineSummary.getQuantity(), is(3));
-    });
+      assertThat(orderLineSummary.getQuantity(),
+          is(order1.getOrderLineItems().get(i).getQuantity()));
+    }
 
     orderDetail.getShipments().forEach(shipment -> {
       assertThat(shipment, is(notNullValue()));
@@ -373,8 +775,8 @@ public class OrderOrderLineServiceUnitTests {
         LocalDateTime.of(2018, 9, 8, 12, 30),
         LocalDateTime.of(2018, 9, 12, 8, 40));
 
-    when(productClient.getProductById(anyLong())).thenReturn(product);
-    when(orderRepository.findAllByAccountIdOrderByOrderDate(1)).thenReturn(Arrays.asList(
+    when(productClient.getProductsByIds(anyCollection())).thenReturn(getTestProducts());
+    when(orderRepository.findAllWithOrderLineItemsByAccountIdOrderByOrderDate(1)).thenReturn(Arrays.asList(
         order1,
         order2
     ));
@@ -384,7 +786,8 @@ public class OrderOrderLineServiceUnitTests {
     ));
     when(accountAddressClient.getAddressByAccountIdAndAddressId(anyLong(), anyLong()))
         .thenReturn(new Address("","","","","",""));
-    when(shipmentClient.getShipmentById(anyLong())).thenReturn(testShipment);
+    when(shipmentClient.getShipmentsByIds(anyCollection()))
+        .thenReturn(Arrays.asList(testShipment));
 
     List<OrderDetail> orderDetails = orderOrderLineService.getOrderDetails(1);
     assertThat(orderDetails.get(0).getShippingAddress(), is(notNullValue()));
@@ -409,9 +812,9 @@ public class OrderOrderLineServiceUnitTests {
     );
 
     Product product = getTestProduct();
-    when(productClient.getProductById(anyLong())).thenReturn(product);
+    when(productClient.getProductsByIds(anyCollection())).thenReturn(getTestProducts());
 
-    when(orderRepository.findAllByAccountIdOrderByOrderDate(1)).thenReturn(Arrays.asList(
+    when(orderRepository.findAllWithOrderLineItemsByAccountIdOrderByOrderDate(1)).thenReturn(Arrays.asList(
         order1,
         order2
     ));
@@ -453,7 +856,7 @@ public class OrderOrderLineServiceUnitTests {
         LocalDateTime.of(2018, 9, 8, 12, 30),
         LocalDateTime.of(2018, 9, 12, 8, 40));
 
-    when(orderRepository.findAllByAccountIdOrderByOrderDate(1)).thenReturn(Arrays.asList(
+    when(orderRepository.findAllWithOrderLineItemsByAccountIdOrderByOrderDate(1)).thenReturn(Arrays.asList(
         order1,
         order2
     ));
@@ -463,7 +866,8 @@ public class OrderOrderLineServiceUnitTests {
     ));
     when(accountAddressClient.getAddressByAccountIdAndAddressId(anyLong(), anyLong()))
         .thenReturn(address);
-    when(shipmentClient.getShipmentById(anyLong())).thenReturn(testShipment);
+    when(shipmentClient.getShipmentsByIds(anyCollection()))
+        .thenReturn(Arrays.asList(testShipment));
 
     List<OrderDetail> orderDetails = orderOrderLineService.getOrderDetails(1);
     assertThat(orderDetails, is(notNullValue()));
@@ -474,6 +878,213 @@ public class OrderOrderLineServiceUnitTests {
     });
   }
 
+  @Test
+  public void getOrderDetails_LinesShareShipments_LooksUpEachShipmentOnce() {
+    Order order1 = getOrder1();
+    order1.setOrderNumber(1L);
+    order1.setOrderLineItems(new ArrayList<>(getOrderLineItems()));
+    Shipment shipment1 = new Shipment(1, 1, 1,
+        LocalDateTime.of(2018, 9, 8, 12, 30),
+        LocalDateTime.of(2018, 9, 12, 8, 40));
+    Shipment shipment2 = new Shipment(2, 1, 1,
+        LocalDateTime.of(2018, 9, 9, 12, 30),
+        LocalDateTime.of(2018, 9, 13, 8, 40));
+
+    when(orderRepository.findAllWithOrderLineItemsByAccountIdOrderByOrderDate(1))
+        .thenReturn(Arrays.asList(order1));
+    when(productClient.getProductsByIds(anyCollection())).thenReturn(getTestProducts());
+    when(shipmentClient.getShipmentsByIds(anyCollection()))
+        .thenReturn(Arrays.asList(shipment2, shipment1));
+
+    List<OrderDetail> orderDetails = orderOrderLineService.getOrderDetails(1);
+
+    List<Shipment> shipments = orderDetails.get(0).getShipments();
+    assertThat(shipments.size(), is(2));
+    assertThat(shipments.get(0).getId(), is(1L));
+    assertThat(shipments.get(0).getOrderLineItems().size(), is(2));
+    assertThat(shipments.get(1).getId(), is(2L));
+    assertThat(shipments.get(1).getOrderLineItems().size(), is(1));
+    verify(shipmentClient, times(1)).getShipmentsByIds(argThat(ids -> ids.size() == 2));
+    verify(shipmentClient, never()).getShipmentById(anyLong());
+  }
+
+  @Test
+  public void getOrderDetails_ShipmentsUnavailable_ReturnsDetailsWithoutShipments() {
+    Order order1 = getOrder1();
+    order1.setOrderNumber(1L);
+    order1.setOrderLineItems(new ArrayList<>(getOrderLineItems()));
+
+    when(orderRepository.findAllWithOrderLineItemsByAccountIdOrderByOrderDate(1))
+        .thenReturn(Arrays.asList(order1));
+    when(productClient.getProductsByIds(anyCollection())).thenReturn(getTestProducts());
+    when(shipmentClient.getShipmentsByIds(anyCollection())).thenThrow(new HystrixRuntimeException(
+        FailureType.REJECTED_THREAD_EXECUTION, null, "shipment-service rejected", null, null));
+
+    List<OrderDetail> orderDetails = orderOrderLineService.getOrderDetails(1);
+
+    assertThat(orderDetails.size(), is(1));
+    assertThat(orderDetails.get(0).getShipments().size(), is(2));
+    assertTrue(orderDetails.get(0).getShipments().get(0).isFallback());
+    assertThat(orderDetails.get(0).getOrderLineItems().size(), is(3));
+    assertThat(orderDetails.get(0).getStaleFields(),
+        is(equalTo(Collections.singletonList(OrderDetail.SHIPMENTS))));
+  }
+
+  @Test
+  public void getOrderDetails_FallbackAddressAndProducts_MarksFieldsStale() {
+    Order order1 = getOrder1();
+    order1.setOrderNumber(1L);
+    Address address = new Address("111 N Canal St", "700", "Chicago", "IL", "60606",
+        "United States");
+    address.setFallback(true);
+    Product product = new Product(1, "Test", 250);
+    product.setFallback(true);
+
+    when(orderRepository.findAllWithOrderLineItemsByAccountIdOrderByOrderDate(1))
+        .thenReturn(Arrays.asList(order1));
+    when(accountAddressClient.getAddressByAccountIdAndAddressId(anyLong(), anyLong()))
+        .thenReturn(address);
+    when(productClient.getProductsByIds(anyCollection())).thenReturn(Arrays.asList(product));
+
+    List<OrderDetail> orderDetails = orderOrderLineService.getOrderDetails(1);
+
+    assertThat(orderDetails.get(0).getStaleFields(), is(equalTo(Arrays.asList(
+        OrderDetail.SHIPPING_ADDRESS, OrderDetail.ORDER_LINE_ITEMS))));
+    assertThat(orderDetails.get(0).getShippingAddress().getStreet(),
+        is(equalTo("111 N Canal St")));
+  }
+
+  @Test
+  public void getOrderDetails_OrdersShareShippingAddress_LooksUpAddressOnce() {
+    Order order1 = getOrder1();
+    order1.setOrderNumber(1L);
+    Order order2 = getOrder2();
+    order2.setOrderNumber(2L);
+    order2.setShippingAddressId(1);
+    Address address = new Address("111 N Canal St", "700", "Chicago", "IL", "60606",
+        "United States");
+
+    when(orderRepository.findAllWithOrderLineItemsByAccountIdOrderByOrderDate(1)).thenReturn(Arrays.asList(
+        order1,
+        order2
+    ));
+    when(accountAddressClient.getAddressByAccountIdAndAddressId(1, 1)).thenReturn(address);
+
+    List<OrderDetail> orderDetails = orderOrderLineService.getOrderDetails(1);
+
+    assertThat(orderDetails.get(0).getShippingAddress(), is(equalTo(address)));
+    assertThat(orderDetails.get(1).getShippingAddress(), is(equalTo(address)));
+    verify(accountAddressClient, times(1)).getAddressByAccountIdAndAddressId(1, 1);
+  }
+
+  @Test
+  public void getOrderDetails_ParallelDisabled_ReturnsListOfOrderDetailInOrderDateOrder() {
+    orderServiceProperties.getDetails().setParallel(false);
+    Order order1 = getOrder1();
+    order1.setOrderNumber(1L);
+    Order order2 = getOrder2();
+    order2.setOrderNumber(2L);
+
+    when(orderRepository.findAllWithOrderLineItemsByAccountIdOrderByOrderDate(1)).thenReturn(Arrays.asList(
+        order2,
+        order1
+    ));
+    when(accountAddressClient.getAddressByAccountIdAndAddressId(anyLong(), anyLong()))
+        .thenReturn(new Address("","","","","",""));
+
+    List<OrderDetail> orderDetails = orderOrderLineService.getOrderDetails(1);
+
+    assertThat(orderDetails.size(), is(2));
+    assertThat(orderDetails.get(0).getOrderNumber(), is(2L));
+    assertThat(orderDetails.get(1).getOrderNumber(), is(1L));
+  }
+
+  @Test
+  public void getOrderDetails_SlowAddressService_KeepsOrderDateOrder() {
+    Order order1 = getOrder1();
+    order1.setOrderNumber(1L);
+    Order order2 = getOrder2();
+    order2.setOrderNumber(2L);
+
+    when(orderRepository.findAllWithOrderLineItemsByAccountIdOrderByOrderDate(1)).thenReturn(Arrays.asList(
+        order2,
+        order1
+    ));
+    when(accountAddressClient.getAddressByAccountIdAndAddressId(1, 2)).thenAnswer(invocation -> {
+      Thread.sleep(200);
+      return new Address("2","","","","","");
+    });
+    when(accountAddressClient.getAddressByAccountIdAndAddressId(1, 1))
+        .thenReturn(new Address("1","","","","",""));
+
+    List<OrderDetail> orderDetails = orderOrderLineService.getOrderDetails(1);
+
+    assertThat(orderDetails.size(), is(2));
+    assertThat(orderDetails.get(0).getOrderNumber(), is(2L));
+    assertThat(orderDetails.get(0).getShippingAddress().getStreet(), is(equalTo("2")));
+    assertThat(orderDetails.get(1).getOrderNumber(), is(1L));
+    assertThat(orderDetails.get(1).getShippingAddress().getStreet(), is(equalTo("1")));
+  }
+
+  @Test(expected = HTTP504Exception.class)
+  public void getOrderDetails_AddressServiceTooSlow_ThrowsHTTP504Exception() {
+    orderServiceProperties.getDetails().setTimeout(Duration.ofMillis(50));
+    when(orderRepository.findAllWithOrderLineItemsByAccountIdOrderByOrderDate(1))
+        .thenReturn(Arrays.asList(getOrder1()));
+    when(accountAddressClient.getAddressByAccountIdAndAddressId(anyLong(), anyLong()))
+        .thenAnswer(invocation -> {
+          Thread.sleep(1000);
+          return new Address("","","","","","");
+        });
+
+    orderOrderLineService.getOrderDetails(1);
+  }
+
+  @Test
+  public void getOrderDetails_AddressServiceTooSlow_InterruptsLookup() throws Exception {
+    orderServiceProperties.getDetails().setTimeout(Duration.ofMillis(50));
+    CountDownLatch interrupted = new CountDownLatch(1);
+    when(orderRepository.findAllWithOrderLineItemsByAccountIdOrderByOrderDate(1))
+        .thenReturn(Arrays.asList(getOrder1()));
+    when(accountAddressClient.getAddressByAccountIdAndAddressId(anyLong(), anyLong()))
+        .thenAnswer(invocation -> {
+          try {
+            Thread.sleep(10_000);
+          } catch (InterruptedException e) {
+            interrupted.countDown();
+          }
+          return new Address("","","","","","");
+        });
+
+    try {
+      orderOrderLineService.getOrderDetails(1);
+      fail();
+    } catch (HTTP504Exception e) {
+      assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test(expected = HTTP503Exception.class)
+  public void getOrderDetails_ExecutorSaturated_ThrowsHTTP503Exception() {
+    orderOrderLineService = new OrderOrderLineService(
+        orderLineItemRepository,
+        orderRepository,
+        accountAddressClient,
+        productClient,
+        shipmentClient,
+        command -> {
+          throw new RejectedExecutionException("saturated");
+        },
+        orderServiceProperties,
+        entityManager,
+        eventPublisher,
+        new ReadYourWrites(new ReadReplicaProperties(), entityManager));
+    when(orderRepository.findAllWithOrderLineItemsByAccountIdOrderByOrderDate(1))
+        .thenReturn(Arrays.asList(getOrder1()));
+
+    orderOrderLineService.getOrderDetails(1);
+  }
+
   @Test
    public void testProductFromJson() {
     ObjectMapper objectMapper = new ObjectMapper();
@@ -484,6 +1095,7 @@ public class OrderOrderLineServiceUnitTests {
           + "\"description\":\"Test\","
           + "\"image\":\"TestImage\","
           + "\"price\":1.5}", Product.class);
+      assertThat(product.getPrice(), is(150L));
     } catch (IOException e) {
       logger.error(e.toString());
       fail();
@@ -545,6 +1157,14 @@ public class OrderOrderLineServiceUnitTests {
     return Arrays.asList(getOrder1(), getOrder2());
   }
 
+  private List<Order> getNumberedOrders() {
+    Order order1 = getOrder1();
+    order1.setOrderNumber(1L);
+    Order order2 = getOrder2();
+    order2.setOrderNumber(2L);
+    return Arrays.asList(order1, order2);
+  }
+
   private List<OrderLineItem> getOrderLineItems() {
     return Arrays.asList(getOrderLineItem1(), getOrderLineItem2(), getOrderLineItem3());
   }
@@ -574,19 +1194,27 @@ public class OrderOrderLineServiceUnitTests {
   }
 
   private OrderLineItem getOrderLineItem1() {
-    return new OrderLineItem(1,3, 2.50,1);
+    return new OrderLineItem(1,3, 250,1);
   }
 
   private OrderLineItem getOrderLineItem2() {
-    return new OrderLineItem(2,3, 5.00,1);
+    return new OrderLineItem(2,3, 500,1);
   }
 
   private OrderLineItem getOrderLineItem3() {
-    return new OrderLineItem(3,8, 0.50,2);
+    return new OrderLineItem(3,8, 50,2);
   }
 
   private Product getTestProduct() {
-    return new Product("Test", 2.50);
+    return new Product("Test", 250);
+  }
+
+  private List<Product> getTestProducts() {
+    return Arrays.asList(
+        new Product(1, "Test", 250),
+        new Product(2, "Test", 250),
+        new Product(3, "Test", 250)
+    );
   }
 
   private List<OrderLineSummary> getOrderLineSummaries(List<OrderLineItem> orderLineItems) {